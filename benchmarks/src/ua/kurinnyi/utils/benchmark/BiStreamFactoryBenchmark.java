@@ -0,0 +1,91 @@
+package ua.kurinnyi.utils.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ua.kurinnyi.utils.stream.BiStream;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BiStreamFactoryBenchmark {
+
+	@Param({"1000", "1000000"})
+	private int size;
+
+	private List<Integer> lefts;
+	private List<String> rights;
+	private Map<Integer, String> map;
+
+	@Setup
+	public void setUp() {
+		lefts = IntStream.range(0, size).boxed().collect(Collectors.toList());
+		rights = lefts.stream().map(String::valueOf).collect(Collectors.toList());
+		map = new HashMap<>();
+		for (int i = 0; i < size; i++)
+			map.put(lefts.get(i), rights.get(i));
+	}
+
+	@Benchmark
+	public void map(Blackhole blackhole) {
+		BiStream.map(lefts.stream(), String::valueOf).forEach((left, right) -> consume(blackhole, left, right));
+	}
+
+	@Benchmark
+	public void mapBaseline(Blackhole blackhole) {
+		lefts.stream()
+				.map(left -> new SimpleImmutableEntry<>(left, String.valueOf(left)))
+				.forEach(entry -> consume(blackhole, entry.getKey(), entry.getValue()));
+	}
+
+	@Benchmark
+	public void flatMap(Blackhole blackhole) {
+		BiStream.flatMap(lefts.stream(), left -> Stream.of(left, -left))
+				.forEach((left, right) -> consume(blackhole, left, right));
+	}
+
+	@Benchmark
+	public void flatMapBaseline(Blackhole blackhole) {
+		lefts.stream()
+				.flatMap(left -> Stream.of(left, -left).map(right -> new SimpleImmutableEntry<>(left, right)))
+				.forEach(entry -> consume(blackhole, entry.getKey(), entry.getValue()));
+	}
+
+	@Benchmark
+	public void fromMap(Blackhole blackhole) {
+		BiStream.fromMap(map).forEach((left, right) -> consume(blackhole, left, right));
+	}
+
+	@Benchmark
+	public void fromMapBaseline(Blackhole blackhole) {
+		map.entrySet().stream().forEach(entry -> consume(blackhole, entry.getKey(), entry.getValue()));
+	}
+
+	@Benchmark
+	public void combineLists(Blackhole blackhole) {
+		BiStream.combineLists(lefts, rights).forEach((left, right) -> consume(blackhole, left, right));
+	}
+
+	@Benchmark
+	public void combineListsBaseline(Blackhole blackhole) {
+		IntStream.range(0, size)
+				.mapToObj(index -> new SimpleImmutableEntry<>(lefts.get(index), rights.get(index)))
+				.forEach(entry -> consume(blackhole, entry.getKey(), entry.getValue()));
+	}
+
+	private static void consume(Blackhole blackhole, Object left, Object right) {
+		blackhole.consume(left);
+		blackhole.consume(right);
+	}
+}
@@ -0,0 +1,111 @@
+package ua.kurinnyi.utils.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ua.kurinnyi.utils.stream.BiStream;
+import ua.kurinnyi.utils.stream.LongDoubleBiStream;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BiStreamPipelineBenchmark {
+
+	@Param({"1000", "1000000", "10000000"})
+	private int size;
+
+	private List<Integer> values;
+
+	@Setup
+	public void setUp() {
+		values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public void chain(Blackhole blackhole) {
+		BiStream.map(values.stream(), value -> value * 2)
+				.mapLeft((left, right) -> left + 1)
+				.filter((left, right) -> (left & 1) == 1)
+				.mapRight((left, right) -> right - left)
+				.forEach((left, right) -> {
+					blackhole.consume(left);
+					blackhole.consume(right);
+				});
+	}
+
+	@Benchmark
+	public void chunkedChain(Blackhole blackhole) {
+		BiStream.map(values.stream(), value -> value * 2)
+				.mapLeft((left, right) -> left + 1)
+				.chunked(Integer[]::new, Integer[]::new)
+				.filterBatch((lefts, rights, size, matches) -> {
+					for (int i = 0; i < size; i++)
+						matches[i] = (lefts[i] & 1) == 1;
+				})
+				.mapRightBatch(Integer[]::new, (lefts, rights, size, results) -> {
+					for (int i = 0; i < size; i++)
+						results[i] = rights[i] - lefts[i];
+				})
+				.forEachBatch((lefts, rights, size) -> {
+					for (int i = 0; i < size; i++) {
+						blackhole.consume(lefts[i]);
+						blackhole.consume(rights[i]);
+					}
+				});
+	}
+
+	@Benchmark
+	public void primitiveChunkedChain(Blackhole blackhole) {
+		LongDoubleBiStream.map(LongStream.range(0, size), value -> value * 2.0)
+				.chunked()
+				.filterBatch((lefts, rights, size, matches) -> {
+					for (int i = 0; i < size; i++)
+						matches[i] = (lefts[i] & 1) == 1;
+				})
+				.mapRightBatch((lefts, rights, size, results) -> {
+					for (int i = 0; i < size; i++)
+						results[i] = rights[i] - lefts[i];
+				})
+				.forEachBatch((lefts, rights, size) -> {
+					for (int i = 0; i < size; i++) {
+						blackhole.consume(lefts[i]);
+						blackhole.consume(rights[i]);
+					}
+				});
+	}
+
+	@Benchmark
+	public void chainBaseline(Blackhole blackhole) {
+		values.stream()
+				.map(value -> new SimpleImmutableEntry<>(value, value * 2))
+				.map(entry -> new SimpleImmutableEntry<>(entry.getKey() + 1, entry.getValue()))
+				.filter(entry -> (entry.getKey() & 1) == 1)
+				.map(entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue() - entry.getKey()))
+				.forEach(entry -> {
+					blackhole.consume(entry.getKey());
+					blackhole.consume(entry.getValue());
+				});
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> toMap() {
+		return BiStream.map(values.stream(), value -> value * 2).toMap();
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> toMapBaseline() {
+		return values.stream()
+				.map(value -> new SimpleImmutableEntry<>(value, value * 2))
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (value, newValue) -> newValue));
+	}
+}
@@ -0,0 +1,43 @@
+package ua.kurinnyi.utils.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairBenchmark {
+
+	@Param({"100", "1000"})
+	private int side;
+
+	private Map<Pair<Integer, Integer>, Integer> grid;
+
+	@Setup
+	public void setUp() {
+		grid = new HashMap<>();
+		for (int x = 0; x < side; x++)
+			for (int y = 0; y < side; y++)
+				grid.put(Pair.of(x, y), x * y);
+	}
+
+	@Benchmark
+	public long lookupSmallIntegerPairs() {
+		long sum = 0;
+		for (int x = 0; x < side; x++)
+			sum += grid.get(Pair.of(x, side - 1 - x));
+		return sum;
+	}
+
+	@Benchmark
+	public int createAndTransform() {
+		return Pair.of(side, side + 1).mapRight((left, right) -> left * right).transform(Integer::sum);
+	}
+}
@@ -0,0 +1,66 @@
+package ua.kurinnyi.utils.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ua.kurinnyi.utils.tr.TryUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultBenchmark {
+
+	private final IOException exception = new IOException("Prepared to exclude stack trace capturing.");
+
+	private int value = 42;
+
+	@Benchmark
+	public int successChain() {
+		return TryUtils.tr(() -> succeed(value))
+				.map(result -> result + 1)
+				.flatMap(result -> TryUtils.tr(() -> succeed(result)))
+				.orElse(-1);
+	}
+
+	@Benchmark
+	public int successBaseline() {
+		try {
+			int result = succeed(value) + 1;
+			return succeed(result);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	@Benchmark
+	public int failureChain() {
+		return TryUtils.tr(() -> fail(value))
+				.map(result -> result + 1)
+				.flatMap(result -> TryUtils.tr(() -> succeed(result)))
+				.orElse(-1);
+	}
+
+	@Benchmark
+	public int failureBaseline() {
+		try {
+			int result = fail(value) + 1;
+			return succeed(result);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private int succeed(int input) throws IOException {
+		if (input < 0)
+			throw exception;
+		return input;
+	}
+
+	private int fail(int input) throws IOException {
+		throw exception;
+	}
+}
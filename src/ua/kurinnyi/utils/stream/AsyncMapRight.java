@@ -0,0 +1,58 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import static java.util.Spliterator.*;
+
+final class AsyncMapRight<L, R, M> implements BiSpliterator<L, M> {
+
+	private final BiSpliterator<L, R> source;
+	private final int maxInFlight;
+	private final Deque<L> lefts;
+	private final Deque<CompletableFuture<? extends M>> inFlight;
+	private final BiConsumer<L, R> submit;
+
+	AsyncMapRight(BiSpliterator<L, R> source,
+	              BiFunction<? super L, ? super R, ? extends CompletableFuture<? extends M>> mapper, int maxInFlight) {
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("At least one call should be allowed in flight.");
+		this.source = source;
+		this.maxInFlight = maxInFlight;
+		this.lefts = new ArrayDeque<>(maxInFlight);
+		this.inFlight = new ArrayDeque<>(maxInFlight);
+		this.submit = (left, right) -> {
+			lefts.add(left);
+			inFlight.add(mapper.apply(left, right));
+		};
+	}
+
+	@Override
+	public boolean tryAdvance(BiConsumer<? super L, ? super M> action) {
+		while (inFlight.size() < maxInFlight && source.tryAdvance(submit));
+		if (inFlight.isEmpty())
+			return false;
+		L left = lefts.poll();
+		action.accept(left, inFlight.poll().join());
+		return true;
+	}
+
+	// One window of calls keeps the output in encounter order, so the stage can't be split.
+	@Override
+	public BiSpliterator<L, M> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return source.estimateSize() + inFlight.size();
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & ~(DISTINCT | DISTINCT_LEFTS | SORTED | NONNULL);
+	}
+}
@@ -0,0 +1,23 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Spliterator;
+
+interface BaseSpliterator<S extends BaseSpliterator<S>> {
+
+	// Not a java.util.Spliterator characteristic: no two pairs share a left value, which also implies DISTINCT.
+	int DISTINCT_LEFTS = 0x10000000;
+
+	S trySplit();
+
+	long estimateSize();
+
+	int characteristics();
+
+	default long getExactSizeIfKnown() {
+		return hasCharacteristics(Spliterator.SIZED) ? estimateSize() : -1L;
+	}
+
+	default boolean hasCharacteristics(int characteristics) {
+		return (characteristics() & characteristics) == characteristics;
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface BatchConsumer<L, R> {
+	void accept(L[] lefts, R[] rights, int size);
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface BatchFunction<L, R, M> {
+	void apply(L[] lefts, R[] rights, int size, M[] results);
+}
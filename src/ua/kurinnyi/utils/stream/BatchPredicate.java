@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface BatchPredicate<L, R> {
+	void test(L[] lefts, R[] rights, int size, boolean[] matches);
+}
@@ -0,0 +1,12 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.function.BiConsumer;
+
+interface BiSpliterator<L, R> extends BaseSpliterator<BiSpliterator<L, R>> {
+
+	boolean tryAdvance(BiConsumer<? super L, ? super R> action);
+
+	default void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+		while (tryAdvance(action));
+	}
+}
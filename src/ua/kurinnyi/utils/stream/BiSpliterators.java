@@ -0,0 +1,668 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+final class BiSpliterators {
+
+	private BiSpliterators() {
+	}
+
+	static <L, R> BiSpliterator<L, R> fromPairs(Spliterator<? extends Pair<L, R>> source) {
+		return new PairSource<>(source);
+	}
+
+	static <L, R> BiSpliterator<L, R> fromEntries(Spliterator<? extends Map.Entry<? extends L, ? extends R>> source) {
+		return new EntrySource<>(source);
+	}
+
+	static <L, R> BiSpliterator<L, R> mapping(Spliterator<? extends L> source,
+	                                          Function<? super L, ? extends R> mapper) {
+		return new MappingSource<>(source, mapper);
+	}
+
+	static <L, R> BiSpliterator<L, R> flatMapping(Spliterator<? extends L> source,
+	                                              Function<? super L, ? extends Stream<? extends R>> mapper) {
+		return new FlatMap<>(mapping(source, Function.<L>identity()),
+				(value, sameValue) -> withLeft(value, mapper.apply(value)));
+	}
+
+	static <L, R> BiSpliterator<L, R> zip(List<? extends L> lefts, List<? extends R> rights) {
+		if (lefts instanceof RandomAccess && rights instanceof RandomAccess)
+			return new ListZip<>(lefts, rights, 0, lefts.size());
+		return new IteratorZip<>(lefts.iterator(), rights.iterator(), lefts.size());
+	}
+
+	@SuppressWarnings("unchecked")
+	static <L, R> BiSpliterator<L, R> zip(Spliterator<? extends L> lefts, Spliterator<? extends R> rights) {
+		return new SpliteratorZip<>((Spliterator<L>) lefts, (Spliterator<R>) rights);
+	}
+
+	static <L, R> BiSpliterator<L, R> withLeft(L left, Stream<? extends R> rightValues) {
+		return rightValues == null ? null : new FixedLeft<>(left, rightValues);
+	}
+
+	static <L, R> BiSpliterator<L, R> filter(BiSpliterator<L, R> source, BiPredicate<? super L, ? super R> predicate) {
+		return new Filter<>(source, predicate);
+	}
+
+	static <L, R> BiSpliterator<L, R> peek(BiSpliterator<L, R> source, BiConsumer<? super L, ? super R> action) {
+		return new Peek<>(source, action);
+	}
+
+	static <L, R, M> BiSpliterator<M, R> mapLeft(BiSpliterator<L, R> source,
+	                                             BiFunction<? super L, ? super R, ? extends M> mapper) {
+		return new MapLeft<>(source, mapper);
+	}
+
+	static <L, R, M> BiSpliterator<L, M> mapRight(BiSpliterator<L, R> source,
+	                                              BiFunction<? super L, ? super R, ? extends M> mapper) {
+		return new MapRight<>(source, mapper);
+	}
+
+	static <L, R> BiSpliterator<R, L> swap(BiSpliterator<L, R> source) {
+		return new Swap<>(source);
+	}
+
+	static <L, R> BiSpliterator<L, R> unordered(BiSpliterator<L, R> source) {
+		return new Unordered<>(source);
+	}
+
+	static <L, R, L1, R1> BiSpliterator<L1, R1> flatMap(
+			BiSpliterator<L, R> source,
+			BiFunction<? super L, ? super R, ? extends BiSpliterator<L1, R1>> expander) {
+		return new FlatMap<>(source, expander);
+	}
+
+	static <L, R> Spliterator<Pair<L, R>> toPairs(BiSpliterator<L, R> source) {
+		return new PairAdapter<>(source);
+	}
+
+
+	private static abstract class Stage<L, R, L1, R1>
+			extends SpliteratorStage<BiSpliterator<L, R>, BiSpliterator<L1, R1>> implements BiSpliterator<L1, R1> {
+
+		Stage(BiSpliterator<L, R> source) {
+			super(source);
+		}
+	}
+
+	private static final class Filter<L, R> extends Stage<L, R, L, R> {
+		private final BiPredicate<? super L, ? super R> predicate;
+		private boolean matched;
+
+		Filter(BiSpliterator<L, R> source, BiPredicate<? super L, ? super R> predicate) {
+			super(source);
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			BiConsumer<L, R> sink = (left, right) -> {
+				if (predicate.test(left, right)) {
+					matched = true;
+					action.accept(left, right);
+				}
+			};
+			matched = false;
+			while (!matched && source.tryAdvance(sink));
+			return matched;
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining((left, right) -> {
+				if (predicate.test(left, right))
+					action.accept(left, right);
+			});
+		}
+
+		@Override
+		BiSpliterator<L, R> wrap(BiSpliterator<L, R> prefix) {
+			return new Filter<>(prefix, predicate);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class Peek<L, R> extends Stage<L, R, L, R> {
+		private final BiConsumer<? super L, ? super R> peekAction;
+
+		Peek(BiSpliterator<L, R> source, BiConsumer<? super L, ? super R> peekAction) {
+			super(source);
+			this.peekAction = peekAction;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			return source.tryAdvance((left, right) -> {
+				peekAction.accept(left, right);
+				action.accept(left, right);
+			});
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining((left, right) -> {
+				peekAction.accept(left, right);
+				action.accept(left, right);
+			});
+		}
+
+		@Override
+		BiSpliterator<L, R> wrap(BiSpliterator<L, R> prefix) {
+			return new Peek<>(prefix, peekAction);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+
+	private static final class MapLeft<L, R, M> extends Stage<L, R, M, R> {
+		private final BiFunction<? super L, ? super R, ? extends M> mapper;
+
+		MapLeft(BiSpliterator<L, R> source, BiFunction<? super L, ? super R, ? extends M> mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super M, ? super R> action) {
+			return source.tryAdvance((left, right) -> action.accept(mapper.apply(left, right), right));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super M, ? super R> action) {
+			source.forEachRemaining((left, right) -> action.accept(mapper.apply(left, right), right));
+		}
+
+		@Override
+		BiSpliterator<M, R> wrap(BiSpliterator<L, R> prefix) {
+			return new MapLeft<>(prefix, mapper);
+		}
+	}
+
+	private static final class MapRight<L, R, M> extends Stage<L, R, L, M> {
+		private final BiFunction<? super L, ? super R, ? extends M> mapper;
+
+		MapRight(BiSpliterator<L, R> source, BiFunction<? super L, ? super R, ? extends M> mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super M> action) {
+			return source.tryAdvance((left, right) -> action.accept(left, mapper.apply(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super M> action) {
+			source.forEachRemaining((left, right) -> action.accept(left, mapper.apply(left, right)));
+		}
+
+		@Override
+		BiSpliterator<L, M> wrap(BiSpliterator<L, R> prefix) {
+			return new MapRight<>(prefix, mapper);
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & ~NONNULL;
+			return (characteristics & DISTINCT_LEFTS) != 0 ? characteristics : characteristics & ~DISTINCT;
+		}
+	}
+
+	private static final class Unordered<L, R> extends Stage<L, R, L, R> {
+
+		Unordered(BiSpliterator<L, R> source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			return source.tryAdvance(action);
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining(action);
+		}
+
+		@Override
+		BiSpliterator<L, R> wrap(BiSpliterator<L, R> prefix) {
+			return new Unordered<>(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~ORDERED;
+		}
+	}
+
+	private static final class Swap<L, R> extends Stage<L, R, R, L> {
+
+		Swap(BiSpliterator<L, R> source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super R, ? super L> action) {
+			return source.tryAdvance((left, right) -> action.accept(right, left));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super R, ? super L> action) {
+			source.forEachRemaining((left, right) -> action.accept(right, left));
+		}
+
+		@Override
+		BiSpliterator<R, L> wrap(BiSpliterator<L, R> prefix) {
+			return new Swap<>(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SORTED | DISTINCT_LEFTS);
+		}
+	}
+
+	private static final class FlatMap<L, R, L1, R1> extends Stage<L, R, L1, R1> {
+		private final BiFunction<? super L, ? super R, ? extends BiSpliterator<L1, R1>> expander;
+		private final BiConsumer<L, R> expand;
+		private BiSpliterator<L1, R1> current;
+
+		FlatMap(BiSpliterator<L, R> source,
+		        BiFunction<? super L, ? super R, ? extends BiSpliterator<L1, R1>> expander) {
+			super(source);
+			this.expander = expander;
+			this.expand = (left, right) -> current = expander.apply(left, right);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L1, ? super R1> action) {
+			while (true) {
+				if (current != null) {
+					if (current.tryAdvance(action))
+						return true;
+					current = null;
+				}
+				if (!source.tryAdvance(expand))
+					return false;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L1, ? super R1> action) {
+			if (current != null) {
+				current.forEachRemaining(action);
+				current = null;
+			}
+			source.forEachRemaining((left, right) -> {
+				BiSpliterator<L1, R1> expanded = expander.apply(left, right);
+				if (expanded != null)
+					expanded.forEachRemaining(action);
+			});
+		}
+
+		@Override
+		public BiSpliterator<L1, R1> trySplit() {
+			return current == null ? super.trySplit() : null;
+		}
+
+		@Override
+		BiSpliterator<L1, R1> wrap(BiSpliterator<L, R> prefix) {
+			return new FlatMap<>(prefix, expander);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ORDERED;
+		}
+	}
+
+	private static final class FixedLeft<L, R> implements BiSpliterator<L, R> {
+		private final L left;
+		private final Stream<? extends R> stream;
+		private final Spliterator<? extends R> rightValues;
+
+		FixedLeft(L left, Stream<? extends R> stream) {
+			this.left = left;
+			this.stream = stream;
+			this.rightValues = stream.spliterator();
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (rightValues.tryAdvance(right -> action.accept(left, right)))
+				return true;
+			stream.close();
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			rightValues.forEachRemaining(right -> action.accept(left, right));
+			stream.close();
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return rightValues.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return rightValues.characteristics() & (ORDERED | SIZED);
+		}
+	}
+
+	private static final class ListZip<L, R> implements BiSpliterator<L, R> {
+		private final List<? extends L> lefts;
+		private final List<? extends R> rights;
+		private int index;
+		private final int fence;
+
+		ListZip(List<? extends L> lefts, List<? extends R> rights, int index, int fence) {
+			this.lefts = lefts;
+			this.rights = rights;
+			this.index = index;
+			this.fence = fence;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (index >= fence)
+				return false;
+			int current = index++;
+			action.accept(lefts.get(current), rights.get(current));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			int from = index;
+			index = fence;
+			for (int i = from; i < fence; i++)
+				action.accept(lefts.get(i), rights.get(i));
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			int middle = (index + fence) >>> 1;
+			if (middle <= index)
+				return null;
+			BiSpliterator<L, R> prefix = new ListZip<>(lefts, rights, index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED;
+		}
+	}
+
+	private static final class IteratorZip<L, R> implements BiSpliterator<L, R> {
+		private final Iterator<? extends L> lefts;
+		private final Iterator<? extends R> rights;
+		private long remaining;
+
+		IteratorZip(Iterator<? extends L> lefts, Iterator<? extends R> rights, long size) {
+			this.lefts = lefts;
+			this.rights = rights;
+			this.remaining = size;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (!lefts.hasNext() || !rights.hasNext())
+				return false;
+			remaining--;
+			action.accept(lefts.next(), rights.next());
+			return true;
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED;
+		}
+	}
+
+	private static final class SpliteratorZip<L, R> implements BiSpliterator<L, R> {
+		private Spliterator<L> lefts;
+		private Spliterator<R> rights;
+		private L left;
+
+		SpliteratorZip(Spliterator<L> lefts, Spliterator<R> rights) {
+			this.lefts = lefts;
+			this.rights = rights;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (!lefts.tryAdvance(value -> left = value))
+				return false;
+			L current = left;
+			left = null;
+			return rights.tryAdvance(right -> action.accept(current, right));
+		}
+
+		// Both sides split independently, so halves of different sizes are evened out by moving the difference
+		// from the head of the longer suffix to the end of the shorter prefix.
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			if (!lefts.hasCharacteristics(SIZED | SUBSIZED) || !rights.hasCharacteristics(SIZED | SUBSIZED))
+				return null;
+			Spliterator<L> leftPrefix = lefts.trySplit();
+			if (leftPrefix == null)
+				return null;
+			Spliterator<R> rightPrefix = rights.trySplit();
+			if (rightPrefix == null) {
+				lefts = concat(leftPrefix, lefts);
+				return null;
+			}
+			long difference = leftPrefix.estimateSize() - rightPrefix.estimateSize();
+			if (difference > 0)
+				rightPrefix = concat(rightPrefix, take(rights, difference));
+			else if (difference < 0)
+				leftPrefix = concat(leftPrefix, take(lefts, -difference));
+			return new SpliteratorZip<>(leftPrefix, rightPrefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Math.min(lefts.estimateSize(), rights.estimateSize());
+		}
+
+		@Override
+		public int characteristics() {
+			return lefts.characteristics() & rights.characteristics() & (ORDERED | SIZED | SUBSIZED);
+		}
+
+		private static <T> Spliterator<T> concat(Spliterator<T> first, Spliterator<T> second) {
+			return Stream.concat(StreamSupport.stream(first, false), StreamSupport.stream(second, false)).spliterator();
+		}
+
+		private static <T> Spliterator<T> take(Spliterator<T> source, long count) {
+			List<T> taken = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE - 8));
+			for (long i = 0; i < count && source.tryAdvance(taken::add); i++);
+			return taken.spliterator();
+		}
+	}
+
+	private static final class PairSource<L, R> implements BiSpliterator<L, R> {
+		private final Spliterator<? extends Pair<L, R>> source;
+
+		PairSource(Spliterator<? extends Pair<L, R>> source) {
+			this.source = source;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			return source.tryAdvance(pair -> pair.use(action));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining(pair -> pair.use(action));
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			Spliterator<? extends Pair<L, R>> prefix = source.trySplit();
+			return prefix == null ? null : new PairSource<>(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SORTED | NONNULL);
+		}
+	}
+
+	private static final class EntrySource<L, R> implements BiSpliterator<L, R> {
+		private final Spliterator<? extends Map.Entry<? extends L, ? extends R>> source;
+
+		EntrySource(Spliterator<? extends Map.Entry<? extends L, ? extends R>> source) {
+			this.source = source;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			return source.tryAdvance(entry -> action.accept(entry.getKey(), entry.getValue()));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining(entry -> action.accept(entry.getKey(), entry.getValue()));
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			Spliterator<? extends Map.Entry<? extends L, ? extends R>> prefix = source.trySplit();
+			return prefix == null ? null : new EntrySource<>(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SORTED | NONNULL);
+		}
+	}
+
+	private static final class MappingSource<L, R> implements BiSpliterator<L, R> {
+		private final Spliterator<? extends L> source;
+		private final Function<? super L, ? extends R> mapper;
+
+		MappingSource(Spliterator<? extends L> source, Function<? super L, ? extends R> mapper) {
+			this.source = source;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			return source.tryAdvance(value -> action.accept(value, mapper.apply(value)));
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			source.forEachRemaining(value -> action.accept(value, mapper.apply(value)));
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			Spliterator<? extends L> prefix = source.trySplit();
+			return prefix == null ? null : new MappingSource<>(prefix, mapper);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & (ORDERED | SIZED | SUBSIZED | DISTINCT);
+			return (characteristics & DISTINCT) != 0 ? characteristics | DISTINCT_LEFTS : characteristics;
+		}
+	}
+
+	private static final class PairAdapter<L, R> implements Spliterator<Pair<L, R>> {
+		private final BiSpliterator<L, R> source;
+
+		PairAdapter(BiSpliterator<L, R> source) {
+			this.source = source;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Pair<L, R>> action) {
+			return source.tryAdvance((left, right) -> action.accept(Pair.of(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Pair<L, R>> action) {
+			source.forEachRemaining((left, right) -> action.accept(Pair.of(left, right)));
+		}
+
+		@Override
+		public Spliterator<Pair<L, R>> trySplit() {
+			BiSpliterator<L, R> prefix = source.trySplit();
+			return prefix == null ? null : new PairAdapter<>(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SORTED | DISTINCT_LEFTS) | NONNULL;
+		}
+	}
+}
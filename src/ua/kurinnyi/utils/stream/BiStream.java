@@ -2,44 +2,81 @@ package ua.kurinnyi.utils.stream;
 
 import ua.kurinnyi.utils.tuple.Pair;
 
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
-import java.util.stream.Collectors;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class BiStream<L,R>{
+public class BiStream<L,R> implements AutoCloseable {
 
 
-	private Stream<Pair<L,R>> stream;
+	private BiSpliterator<L,R> spliterator;
+	private boolean parallel;
+	private PipelineMetrics metrics;
+	private CloseHandlers closeHandlers;
 
 
 	protected BiStream(Stream<Pair<L,R>> stream) {
-		this.stream = stream;
+		this(BiSpliterators.fromPairs(stream.spliterator()), stream.isParallel());
+		onClose(stream::close);
+	}
+
+	BiStream(BiSpliterator<L,R> spliterator, boolean parallel) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
 	}
 
 	public static <L,R> BiStream<L,R> flatMap(Stream<? extends L> stream,
 	                                          Function<? super L, ? extends Stream<? extends R>> mapper) {
-		return new BiStream<>(stream.flatMap(initialValue ->
-				mapper.apply(initialValue).map(mappedValue -> Pair.of(initialValue, mappedValue))
-		));
+		return new BiStream<L, R>(BiSpliterators.flatMapping(stream.spliterator(), mapper), stream.isParallel())
+				.onClose(stream::close);
 	}
 
 	public static <L,R> BiStream<L,R> combineLists(List<? extends L> list1, List<? extends R> list2) {
 		if (list1.size() != list2.size())
 			throw new IllegalArgumentException("Lists should have same size.");
-		Iterator<? extends R> list2Iterator = list2.iterator();
-		return new BiStream<>(list1.stream().map(value1 -> Pair.of(value1, list2Iterator.next())));
+		return new BiStream<>(BiSpliterators.zip(list1, list2), false);
+	}
+
+	public static <L, R> BiStream<L, R> zip(Stream<? extends L> lefts, Stream<? extends R> rights) {
+		return new BiStream<L, R>(BiSpliterators.zip(lefts.spliterator(), rights.spliterator()),
+				lefts.isParallel() || rights.isParallel()).onClose(lefts::close).onClose(rights::close);
+	}
+
+	public static <T> LongObjBiStream<T> zipWithIndex(Stream<? extends T> stream) {
+		return new LongObjBiStream<>(LongObjBiStream.indexed(stream.spliterator()), stream.isParallel(),
+				CloseHandlers.of(stream::close));
 	}
 
 	public static <L,R> BiStream<L,R> map(Stream<? extends L> stream, Function<? super L, ? extends R> mapper) {
-		return new BiStream<>(stream.map(initialValue -> Pair.of(initialValue, mapper.apply(initialValue))));
+		return new BiStream<L, R>(BiSpliterators.mapping(stream.spliterator(), mapper), stream.isParallel())
+				.onClose(stream::close);
 	}
 
 	public static <L, R>BiStream<L, R> fromMap(Map<? extends L, ? extends R> map) {
-		return new BiStream<>(map.entrySet().stream().map(entry -> Pair.of(entry.getKey(), entry.getValue())));
+		return new BiStream<>(BiSpliterators.fromEntries(map.entrySet().spliterator()), false);
+	}
+
+	public static <L, R> BiStream<L, R> fromMappedFile(Path path, PairCodec<L, R> codec) {
+		return new BiStream<>(MappedPairFile.read(path, codec), false);
+	}
+
+	public static <L, R> BiStream<L, R> fromPages(Supplier<? extends Page<? extends Pair<L, R>>> pages, int prefetch) {
+		PagePrefetch<L, R> prefetching = PagePrefetch.of(pages, PagePrefetch.checkedPrefetch(prefetch));
+		return new BiStream<>(prefetching, false).onClose(prefetching::close);
 	}
 
 	public static <L, R> BiStream<L, R> fromStream(Stream<Pair<L, R>> stream) {
@@ -51,63 +88,334 @@ public class BiStream<L,R>{
 	}
 
 
+	public BiStream<L, R> parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public BiStream<L, R> sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public BiStream<L, R> onClose(Runnable handler) {
+		if (closeHandlers == null)
+			closeHandlers = new CloseHandlers();
+		closeHandlers.add(handler);
+		return this;
+	}
+
+	// Terminal operations close the stream themselves; this is for pipelines that are dropped before one runs.
+	@Override
+	public void close() {
+		if (closeHandlers != null)
+			closeHandlers.run();
+	}
+
+
+	public BiStream<L, R> unordered() {
+		return next(BiSpliterators.unordered(consume()));
+	}
+
+
+	public BiStream<L, R> instrumented(String name, MetricsSink sink) {
+		metrics = new PipelineMetrics(name, sink);
+		return this;
+	}
+
+
 	public BiStream<L,R> filter(BiPredicate<? super L, ? super R> predicate){
-		return new BiStream<>(stream.filter(pair -> pair.test(predicate)));
+		return next(BiSpliterators.filter(consume(), metrics == null ? predicate : metrics.filter(predicate)));
 	}
 
 	public void forEach(BiConsumer<? super L, ? super R> action){
-		stream.forEach(pair -> pair.use(action));
+		terminal("forEach", source -> {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					leaf.forEachRemaining(action);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				source.forEachRemaining(action);
+			return null;
+		});
+	}
+
+	public void partitionByLeft(int lanes, int queueCapacity, BiConsumer<? super L, ? super R> action) {
+		PartitionByLeft.checkArguments(lanes, queueCapacity);
+		terminal("partitionByLeft", source -> {
+			PartitionByLeft.run(source, lanes, queueCapacity, action);
+			return null;
+		});
+	}
+
+	public void forEachBatch(int batchSize, Consumer<? super List<Pair<L, R>>> sink) {
+		forEachBatch(batchSize, 0, TimeUnit.NANOSECONDS, sink);
+	}
+
+	public void forEachBatch(int batchSize, long maxLatency, TimeUnit unit, Consumer<? super List<Pair<L, R>>> sink) {
+		int capacity = ForEachBatch.checkedSize(batchSize);
+		terminal("forEachBatch", source -> {
+			ForEachBatch.run(source, parallel, unit.toNanos(maxLatency), () -> new ForEachBatch.PairBatch<>(capacity, sink));
+			return null;
+		});
+	}
+
+	public void forEachBatch(int batchSize, IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays,
+	                         BatchConsumer<L, R> sink) {
+		forEachBatch(batchSize, 0, TimeUnit.NANOSECONDS, leftArrays, rightArrays, sink);
+	}
+
+	public void forEachBatch(int batchSize, long maxLatency, TimeUnit unit,
+	                         IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays, BatchConsumer<L, R> sink) {
+		int capacity = ForEachBatch.checkedSize(batchSize);
+		terminal("forEachBatch", source -> {
+			ForEachBatch.run(source, parallel, unit.toNanos(maxLatency),
+					() -> new ForEachBatch.ColumnBatch<>(capacity, leftArrays, rightArrays, sink));
+			return null;
+		});
 	}
 
 	public BiStream<L, R> peek(BiConsumer<? super L, ? super R> action){
-		return new BiStream<>(stream.peek(pair -> action.accept(pair.getLeft(), pair.getRight())));
+		return next(BiSpliterators.peek(consume(), metrics == null ? action : metrics.peek(action)));
 	}
 
 	public boolean allMatch(BiPredicate<? super L, ? super R> predicate) {
-		return stream.allMatch(pair -> pair.test(predicate));
+		return !anyMatch(predicate.negate());
 	}
 
 	public boolean anyMatch(BiPredicate<? super L, ? super R> predicate) {
-		return stream.anyMatch(pair -> pair.test(predicate));
+		return terminal("anyMatch", source -> {
+			if (!parallel)
+				return anyMatch(source, predicate, new AtomicBoolean());
+			AtomicBoolean found = new AtomicBoolean();
+			return BiStreamTask.invoke(source, leaf -> anyMatch(leaf, predicate, found), Boolean::logicalOr);
+		});
 	}
 
 	public <M> BiStream<M, R> mapLeft(BiFunction<? super L, ? super R , ? extends M> mapper) {
-		return new BiStream<>(stream.map(pair -> pair.mapLeft(mapper)));
+		return next(BiSpliterators.mapLeft(consume(), metrics == null ? mapper : metrics.map("mapLeft", mapper)));
 	}
 
 	public <M> BiStream<L, M> mapRight(BiFunction<? super L, ? super R, ? extends M> mapper) {
-		return new BiStream<>(stream.map(pair -> pair.mapRight(mapper)));
+		return next(BiSpliterators.mapRight(consume(), metrics == null ? mapper : metrics.map("mapRight", mapper)));
 	}
 
-	public <M> BiStream<L, M> flatMapRight(BiFunction<? super L, ? super R, ? extends Stream<? extends M>> mapper) {
+	public <M> BiStream<L, M> mapRightAsync(
+			BiFunction<? super L, ? super R, ? extends CompletableFuture<? extends M>> mapper, int maxInFlight) {
+		return next(new AsyncMapRight<>(consume(), mapper, maxInFlight));
+	}
 
-		Stream<Pair<L, M>> resultStream = stream
-				.flatMap(pair ->  pair.transform(mapper).map(mappedRight -> Pair.of(pair.getLeft(), mappedRight)));
+	public <M> BiStream<L, M> mapRightAsync(BiFunction<? super L, ? super R, ? extends M> mapper,
+	                                        Executor executor, int maxInFlight) {
+		return mapRightAsync((left, right) -> CompletableFuture.supplyAsync(() -> mapper.apply(left, right), executor),
+				maxInFlight);
+	}
 
-		return new BiStream<>(resultStream);
+	public <M> BiStream<L, M> flatMapRight(BiFunction<? super L, ? super R, ? extends Stream<? extends M>> mapper) {
+		BiFunction<L, R, BiSpliterator<L, M>> expander =
+				(left, right) -> BiSpliterators.withLeft(left, mapper.apply(left, right));
+		return next(BiSpliterators.flatMap(consume(),
+				metrics == null ? expander : metrics.expand("flatMapRight", expander)));
 	}
 
 	public <M> BiStream<M, R> flatMapLeft(BiFunction<? super L, ? super R, ? extends Stream<? extends M>> mapper) {
+		BiSpliterator<R, L> swapped = BiSpliterators.swap(consume());
+		BiFunction<R, L, BiSpliterator<R, M>> expander =
+				(right, left) -> BiSpliterators.withLeft(right, mapper.apply(left, right));
+		BiSpliterator<R, M> expanded = BiSpliterators.flatMap(swapped,
+				metrics == null ? expander : metrics.expand("flatMapLeft", expander));
+		return next(BiSpliterators.swap(expanded));
+	}
+
+
+	public <L1,R1> BiStream<L1,R1> flatMap(BiFunction<? super L, ? super R, ? extends BiStream<L1,R1>> mapper) {
+		BiFunction<L, R, BiSpliterator<L1, R1>> expander = (left, right) -> {
+			BiStream<L1, R1> mapped = mapper.apply(left, right);
+			return mapped == null ? null : mapped.consume();
+		};
+		return next(BiSpliterators.flatMap(consume(), metrics == null ? expander : metrics.expand("flatMap", expander)));
+	}
 
-		Stream<Pair<M, R>> resultStream = stream
-				.flatMap(pair -> pair.transform(mapper).map(mappedLeft-> Pair.of(mappedLeft, pair.getRight())));
 
-		return new BiStream<>(resultStream);
+	public <V> BiStream<L, Pair<R, V>> innerJoin(BiStream<? extends L, ? extends V> other) {
+		return innerJoin(other, Pair::of);
 	}
 
+	public <V, M> BiStream<L, M> innerJoin(BiStream<? extends L, ? extends V> other,
+	                                       BiFunction<? super R, ? super V, ? extends M> combiner) {
+		return next(HashJoin.<L, V>build(adopt(other)).probe(consume(), combiner, false));
+	}
 
-	public <L1,R1> BiStream<L1,R1> flatMap(BiFunction<? super L, ? super R, ? extends BiStream<L1,R1>> mapper) {
-		return new BiStream<>(this.stream.flatMap(pair -> pair.transform(mapper).toStream()));
+	public <V> BiStream<L, Pair<R, V>> innerJoin(Map<? extends L, ? extends V> other) {
+		return innerJoin(other, Pair::of);
+	}
+
+	public <V, M> BiStream<L, M> innerJoin(Map<? extends L, ? extends V> other,
+	                                       BiFunction<? super R, ? super V, ? extends M> combiner) {
+		return next(HashJoin.<L, V>of(other).probe(consume(), combiner, false));
+	}
+
+	public <V> BiStream<L, Pair<R, V>> leftOuterJoin(BiStream<? extends L, ? extends V> other) {
+		return leftOuterJoin(other, Pair::of);
+	}
+
+	public <V, M> BiStream<L, M> leftOuterJoin(BiStream<? extends L, ? extends V> other,
+	                                           BiFunction<? super R, ? super V, ? extends M> combiner) {
+		return next(HashJoin.<L, V>build(adopt(other)).probe(consume(), combiner, true));
+	}
+
+	public <V> BiStream<L, Pair<R, V>> leftOuterJoin(Map<? extends L, ? extends V> other) {
+		return leftOuterJoin(other, Pair::of);
+	}
+
+	public <V, M> BiStream<L, M> leftOuterJoin(Map<? extends L, ? extends V> other,
+	                                           BiFunction<? super R, ? super V, ? extends M> combiner) {
+		return next(HashJoin.<L, V>of(other).probe(consume(), combiner, true));
+	}
+
+	public <V> BiStream<L, Pair<R, V>> mergeJoin(BiStream<? extends L, ? extends V> other,
+	                                             Comparator<? super L> comparator) {
+		return mergeJoin(other, comparator, Pair::of);
+	}
+
+	public <V, M> BiStream<L, M> mergeJoin(BiStream<? extends L, ? extends V> other, Comparator<? super L> comparator,
+	                                       BiFunction<? super R, ? super V, ? extends M> combiner) {
+		return next(new MergeJoin<>(consume(), adopt(other), comparator, combiner));
+	}
+
+	public BiStream<L, R> semiJoin(BiStream<? extends L, ?> other) {
+		HashJoin<L, Object> keys = HashJoin.keysOf(adopt(other));
+		return filter((left, right) -> keys.containsKey(left));
+	}
+
+	public BiStream<L, R> semiJoin(Map<? extends L, ?> other) {
+		return filter((left, right) -> other.containsKey(left));
+	}
+
+	public BiStream<L, R> filterLeftMightContain(BloomFilter<? super L> filter) {
+		return filter((left, right) -> filter.mightContain(left));
+	}
+
+	// The exact check only sees the few lefts the filter lets through.
+	public BiStream<L, R> filterLeftMightContain(BloomFilter<? super L> filter, Predicate<? super L> confirm) {
+		return filter((left, right) -> filter.mightContain(left) && confirm.test(left));
+	}
+
+
+	public LongObjBiStream<R> mapLeftToLong(ToLongBiFunction<? super L, ? super R> mapper) {
+		return new LongObjBiStream<>(LongObjBiStream.fromBiSpliterator(consume(), mapper), parallel, closeHandlers);
+	}
+
+	public LongDoubleBiStream mapToLongDouble(ToLongBiFunction<? super L, ? super R> leftMapper,
+	                                          ToDoubleBiFunction<? super L, ? super R> rightMapper) {
+		return new LongDoubleBiStream(LongDoubleBiStream.fromBiSpliterator(consume(), leftMapper, rightMapper), parallel,
+				closeHandlers);
+	}
+
+	public IntIntBiStream mapToIntInt(ToIntBiFunction<? super L, ? super R> leftMapper,
+	                                  ToIntBiFunction<? super L, ? super R> rightMapper) {
+		return new IntIntBiStream(IntIntBiStream.fromBiSpliterator(consume(), leftMapper, rightMapper), parallel,
+				closeHandlers);
+	}
+
+
+	public BiStream<L, R> distinctLeft() {
+		return next(Distinct.byLeft(consume()));
+	}
+
+	public BiStream<L, R> distinctPairs() {
+		return next(Distinct.byPair(consume()));
+	}
+
+
+	public BiStream<L, R> sortByLeftExternally(Comparator<? super L> comparator, PairCodec<L, R> codec,
+	                                           int maxPairsInMemory) {
+		int budget = ExternalSort.checkedBudget(maxPairsInMemory);
+		return next(new ExternalSort<>(consume(), comparator, codec, budget));
+	}
+
+	public <D> BiStream<L, D> groupByLeftExternally(Comparator<? super L> comparator, PairCodec<L, R> codec,
+	                                                int maxPairsInMemory, Collector<? super R, ?, D> collector) {
+		BiSpliterator<L, R> sorted = sortByLeftExternally(comparator, codec, maxPairsInMemory).consume();
+		return next(ExternalSort.grouped(sorted, comparator, collector));
+	}
+
+	public <D> BiStream<L, Window<D>> windowByLeft(ToLongFunction<? super R> timestamp, WindowSpec spec,
+	                                               Collector<? super R, ?, D> aggregator) {
+		return next(new Windowing<>(consume(), timestamp, spec, aggregator));
 	}
 
 
 	public BiStream<R, L> swap() {
-		return new BiStream<>(stream.map(Pair::swap));
+		return next(BiSpliterators.swap(consume()));
+	}
+
+
+	public ChunkedBiStream<L, R> chunked(IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays) {
+		return chunked(ChunkedBiStream.DEFAULT_CHUNK_SIZE, leftArrays, rightArrays);
+	}
+
+	public ChunkedBiStream<L, R> chunked(int chunkSize, IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays) {
+		int size = ForEachBatch.checkedSize(chunkSize);
+		return new ChunkedBiStream<>(ChunkedBiStream.chunking(consume(), size, leftArrays, rightArrays), parallel, size,
+				closeHandlers);
+	}
+
+
+	public Supplier<BiStream<L, R>> cache() {
+		boolean parallelReplay = parallel;
+		PairBuffer<L, R> cached = toColumns();
+		return parallelReplay ? () -> cached.stream().parallel() : cached::stream;
+	}
+
+	public PairBuffer<L, R> toColumns() {
+		return terminal("toColumns", source -> PairBuffer.collect(source, parallel));
+	}
+
+	public BloomFilter<L> toLeftBloomFilter(long expectedInsertions, double falsePositiveRate) {
+		return toLeftBloomFilter(BloomFilter.create(expectedInsertions, falsePositiveRate));
+	}
+
+	public BloomFilter<L> toLeftBloomFilter(long expectedInsertions, double falsePositiveRate,
+	                                        ToLongFunction<? super L> hasher) {
+		return toLeftBloomFilter(BloomFilter.create(expectedInsertions, falsePositiveRate, hasher));
+	}
+
+	// The filter sets its bits with compare-and-set, so parallel leaves can all fill the same one.
+	public <F extends BloomFilter<? super L>> F toLeftBloomFilter(F filter) {
+		return terminal("toLeftBloomFilter", source -> {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					leaf.forEachRemaining((left, right) -> filter.put(left));
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				source.forEachRemaining((left, right) -> filter.put(left));
+			return filter;
+		});
+	}
+
+	public PairIndex<L, R> toIndex() {
+		return terminal("toIndex", source -> PairIndex.of(PairBuffer.collect(source, parallel)));
+	}
+
+
+	public long toMappedFile(Path path, PairCodec<L, R> codec) {
+		return terminal("toMappedFile", source -> MappedPairFile.write(path, codec, source));
 	}
 
 
 	public Stream<Pair<L,R>> toStream(){
-		return stream;
+		Stream<Pair<L, R>> stream = StreamSupport.stream(BiSpliterators.toPairs(consume()), parallel);
+		if (closeHandlers != null)
+			stream = stream.onClose(closeHandlers);
+		return metrics == null ? stream : stream.onClose(metrics::report);
 	}
 
 
@@ -116,10 +424,156 @@ public class BiStream<L,R>{
 	}
 
 	public Map<L, R> toMap(BinaryOperator<R> mergeFunction) {
-		return stream.collect(Collectors.toMap(Pair::getLeft, Pair::getRight, mergeFunction));
+		return terminal("toMap", source -> {
+			if (!parallel)
+				return toMap(source, mergeFunction);
+			return BiStreamTask.invoke(source, leaf -> toMap(leaf, mergeFunction), (result, other) -> {
+				other.forEach((left, right) -> result.merge(left, right, mergeFunction));
+				return result;
+			});
+		});
+	}
+
+	public List<Pair<L, R>> toList() {
+		return terminal("toList", source -> {
+			if (!parallel)
+				return toList(source);
+			return BiStreamTask.invoke(source, BiStream::toList, (result, other) -> {
+				result.addAll(other);
+				return result;
+			});
+		});
+	}
+
+	public long count() {
+		return terminal("count", source -> {
+			long size = source.getExactSizeIfKnown();
+			if (size >= 0)
+				return size;
+			if (!parallel)
+				return count(source);
+			return BiStreamTask.invoke(source, BiStream::count, Long::sum);
+		});
+	}
+
+	public Map<L, R> reduceByLeft(BinaryOperator<R> reducer) {
+		return groupByLeft(GroupByLeft.reducing(reducer));
+	}
+
+	public <D> Map<L, D> groupByLeft(Collector<? super R, ?, D> collector) {
+		return terminal("groupByLeft", source -> GroupByLeft.collect(source, parallel, collector));
+	}
+
+	public Map<L, Long> countByLeft() {
+		return groupByLeft(GroupByLeft.counting());
+	}
+
+	public List<Pair<L, R>> topKByRight(int k, Comparator<? super R> comparator) {
+		int limit = TopK.checkedK(k);
+		return terminal("topKByRight", source -> TopK.collect(source, parallel, limit, comparator));
+	}
+
+	public Map<L, List<R>> topKPerLeft(int k, Comparator<? super R> comparator) {
+		return groupByLeft(TopK.collector(TopK.checkedK(k), comparator));
+	}
+
+	public Map<L, Long> approxDistinctRightPerLeft() {
+		return approxDistinctRightPerLeft(HyperLogLog.DEFAULT_PRECISION);
+	}
+
+	public Map<L, Long> approxDistinctRightPerLeft(int precision) {
+		return approxDistinctRightPerLeft(precision, value -> Objects.hashCode(value));
+	}
+
+	// Rights with equal hashes count once, so beyond a few million distinct rights per left
+	// a hasher with more than the 32 bits of hashCode keeps the estimate from saturating.
+	public Map<L, Long> approxDistinctRightPerLeft(int precision, ToLongFunction<? super R> hasher) {
+		return groupByLeft(HyperLogLog.collector(HyperLogLog.checkedPrecision(precision), hasher));
+	}
+
+	public Map<L, double[]> approxQuantilesByLeft(ToDoubleFunction<? super R> value, double... quantiles) {
+		return groupByLeft(QuantileSketch.collector(value, QuantileSketch.checkedQuantiles(quantiles)));
+	}
+
+	public List<Pair<L, R>> sampleReservoir(int k) {
+		int size = TopK.checkedK(k);
+		return terminal("sampleReservoir", source -> Reservoir.sample(source, parallel, size));
 	}
 
 	public Optional<Pair<L, R>> findFirst() {
-		return stream.findFirst();
+		return terminal("findFirst", source -> {
+			if (parallel)
+				return StreamSupport.stream(BiSpliterators.toPairs(source), true).findFirst();
+			AtomicReference<Pair<L, R>> first = new AtomicReference<>();
+			source.tryAdvance((left, right) -> first.set(Pair.of(left, right)));
+			return Optional.ofNullable(first.get());
+		});
+	}
+
+
+	private static <L, R> boolean anyMatch(BiSpliterator<L, R> source, BiPredicate<? super L, ? super R> predicate,
+	                                       AtomicBoolean found) {
+		BiConsumer<L, R> probe = (left, right) -> {
+			if (predicate.test(left, right))
+				found.set(true);
+		};
+		while (!found.get() && source.tryAdvance(probe));
+		return found.get();
+	}
+
+	// A known size is an upper bound on the number of lefts, so the map never rehashes; duplicates still merge.
+	private static <L, R> Map<L, R> toMap(BiSpliterator<L, R> source, BinaryOperator<R> mergeFunction) {
+		Map<L, R> result = new HashMap<>(HashJoin.capacityFor(source.getExactSizeIfKnown()));
+		source.forEachRemaining((left, right) -> result.merge(left, right, mergeFunction));
+		return result;
+	}
+
+	private static <L, R> List<Pair<L, R>> toList(BiSpliterator<L, R> source) {
+		long size = source.getExactSizeIfKnown();
+		List<Pair<L, R>> result = new ArrayList<>(size < 0 ? 10 : (int) Math.min(size, Integer.MAX_VALUE - 8));
+		source.forEachRemaining((left, right) -> result.add(Pair.of(left, right)));
+		return result;
+	}
+
+	private static long count(BiSpliterator<?, ?> source) {
+		long[] count = new long[1];
+		source.forEachRemaining((left, right) -> count[0]++);
+		return count[0];
+	}
+
+	private <T> T terminal(String operation, Function<BiSpliterator<L, R>, T> body) {
+		BiSpliterator<L, R> source = consume();
+		try {
+			return metrics == null ? body.apply(source) : metrics.terminal(operation, source, body);
+		} finally {
+			close();
+		}
+	}
+
+	private <L1, R1> BiStream<L1, R1> next(BiSpliterator<L1, R1> stage) {
+		BiStream<L1, R1> next = new BiStream<>(stage, parallel);
+		next.metrics = metrics;
+		next.closeHandlers = closeHandlers;
+		return next;
+	}
+
+	private <L1, R1> BiSpliterator<L1, R1> adopt(BiStream<L1, R1> other) {
+		BiSpliterator<L1, R1> source = other.consume();
+		if (other.closeHandlers != null)
+			onClose(other.closeHandlers);
+		return source;
+	}
+
+	BiStream<L, R> closingWith(CloseHandlers handlers) {
+		closeHandlers = handlers;
+		return this;
+	}
+
+	BiSpliterator<L, R> consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("BiStream has already been operated upon.");
+		BiSpliterator<L, R> current = spliterator;
+		spliterator = null;
+		return current;
 	}
 }
@@ -0,0 +1,49 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+final class BiStreamTask<S extends BaseSpliterator<S>, T> extends RecursiveTask<T> {
+
+	private static final long serialVersionUID = 1L;
+	private static final int LEAVES_PER_THREAD = 4;
+
+	private final S spliterator;
+	private final Function<? super S, T> leaf;
+	private final BinaryOperator<T> combiner;
+	private final long threshold;
+
+	private BiStreamTask(S spliterator, Function<? super S, T> leaf, BinaryOperator<T> combiner, long threshold) {
+		this.spliterator = spliterator;
+		this.leaf = leaf;
+		this.combiner = combiner;
+		this.threshold = threshold;
+	}
+
+	static <S extends BaseSpliterator<S>, T> T invoke(S spliterator, Function<? super S, T> leaf,
+	                                                  BinaryOperator<T> combiner) {
+		long leaves = (long) ForkJoinPool.getCommonPoolParallelism() * LEAVES_PER_THREAD;
+		long threshold = Math.max(1, spliterator.estimateSize() / leaves);
+		return new BiStreamTask<>(spliterator, leaf, combiner, threshold).invoke();
+	}
+
+	@Override
+	protected T compute() {
+		S rest = spliterator;
+		Deque<BiStreamTask<S, T>> forked = new ArrayDeque<>();
+		S prefix;
+		while (rest.estimateSize() > threshold && (prefix = rest.trySplit()) != null) {
+			BiStreamTask<S, T> task = new BiStreamTask<>(prefix, leaf, combiner, threshold);
+			task.fork();
+			forked.push(task);
+		}
+		T result = leaf.apply(rest);
+		while (!forked.isEmpty())
+			result = combiner.apply(forked.pop().join(), result);
+		return result;
+	}
+}
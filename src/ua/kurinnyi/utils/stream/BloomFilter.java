@@ -0,0 +1,90 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+public final class BloomFilter<T> {
+
+	private final AtomicLongArray words;
+	private final long bitSize;
+	private final int hashCount;
+	private final ToLongFunction<? super T> hasher;
+
+	private BloomFilter(long bitSize, int hashCount, ToLongFunction<? super T> hasher) {
+		this.words = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+		this.bitSize = bitSize;
+		this.hashCount = hashCount;
+		this.hasher = hasher;
+	}
+
+	public static <T> BloomFilter<T> create(long expectedInsertions, double falsePositiveRate) {
+		return create(expectedInsertions, falsePositiveRate, value -> Objects.hashCode(value));
+	}
+
+	// Values with equal hashes are the same value to the filter, so for sets far beyond a few million values
+	// a hasher with more than the 32 bits of hashCode keeps the rate close to the requested one.
+	public static <T> BloomFilter<T> create(long expectedInsertions, double falsePositiveRate,
+	                                        ToLongFunction<? super T> hasher) {
+		if (expectedInsertions < 0)
+			throw new IllegalArgumentException("Expected insertions should not be negative: " + expectedInsertions);
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException("False positive rate should be between 0 and 1: " + falsePositiveRate);
+		long insertions = Math.max(1, expectedInsertions);
+		double ln2 = Math.log(2);
+		long bitSize = Math.max(64, (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (ln2 * ln2)));
+		if ((bitSize + 63) >>> 6 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Bloom filter would need more than " + Integer.MAX_VALUE + " words.");
+		int hashCount = (int) Math.max(1, Math.round((double) bitSize / insertions * ln2));
+		return new BloomFilter<>(bitSize, hashCount, hasher);
+	}
+
+	public boolean put(T value) {
+		long hash = mix(hasher.applyAsLong(value));
+		long step = mix(hash) | 1;
+		boolean changed = false;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(hash + i * step, bitSize);
+			changed |= set((int) (bit >>> 6), 1L << bit);
+		}
+		return changed;
+	}
+
+	public boolean mightContain(T value) {
+		long hash = mix(hasher.applyAsLong(value));
+		long step = mix(hash) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(hash + i * step, bitSize);
+			if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	public long getBitSize() {
+		return bitSize;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	private boolean set(int index, long mask) {
+		long word;
+		do {
+			word = words.get(index);
+			if ((word & mask) != 0)
+				return false;
+		} while (!words.compareAndSet(index, word, word | mask));
+		return true;
+	}
+
+	private static long mix(long hash) {
+		hash *= 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ hash >>> 33;
+	}
+}
@@ -0,0 +1,19 @@
+package ua.kurinnyi.utils.stream;
+
+interface ChunkSpliterator<L, R> extends BaseSpliterator<ChunkSpliterator<L, R>> {
+
+	// The chunk belongs to the caller until the next call, which may reuse its arrays.
+	Chunk<L, R> next();
+
+
+	final class Chunk<L, R> {
+		L[] lefts;
+		R[] rights;
+		int size;
+
+		Chunk(L[] lefts, R[] rights) {
+			this.lefts = lefts;
+			this.rights = rights;
+		}
+	}
+}
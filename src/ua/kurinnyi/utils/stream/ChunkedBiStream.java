@@ -0,0 +1,299 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.stream.ChunkSpliterator.Chunk;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class ChunkedBiStream<L, R> {
+
+	static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private ChunkSpliterator<L, R> spliterator;
+	private boolean parallel;
+	private final int chunkSize;
+	private final CloseHandlers closeHandlers;
+
+	ChunkedBiStream(ChunkSpliterator<L, R> spliterator, boolean parallel, int chunkSize, CloseHandlers closeHandlers) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
+		this.chunkSize = chunkSize;
+		this.closeHandlers = closeHandlers;
+	}
+
+	static <L, R> ChunkSpliterator<L, R> chunking(BiSpliterator<L, R> source, int chunkSize,
+	                                              IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays) {
+		return new Source<>(source, chunkSize, leftArrays, rightArrays);
+	}
+
+
+	public ChunkedBiStream<L, R> parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public ChunkedBiStream<L, R> sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public ChunkedBiStream<L, R> filterBatch(BatchPredicate<? super L, ? super R> predicate) {
+		return next(new FilterBatch<>(consume(), predicate, chunkSize));
+	}
+
+	public ChunkedBiStream<L, R> filter(BiPredicate<? super L, ? super R> predicate) {
+		return filterBatch((lefts, rights, size, matches) -> {
+			for (int i = 0; i < size; i++)
+				matches[i] = predicate.test(lefts[i], rights[i]);
+		});
+	}
+
+	public <M> ChunkedBiStream<L, M> mapRightBatch(IntFunction<M[]> arrays,
+	                                               BatchFunction<? super L, ? super R, M> mapper) {
+		return next(new MapRightBatch<>(consume(), arrays.apply(chunkSize), arrays, mapper));
+	}
+
+	public <M> ChunkedBiStream<L, M> mapRight(IntFunction<M[]> arrays,
+	                                          BiFunction<? super L, ? super R, ? extends M> mapper) {
+		return mapRightBatch(arrays, (lefts, rights, size, results) -> {
+			for (int i = 0; i < size; i++)
+				results[i] = mapper.apply(lefts[i], rights[i]);
+		});
+	}
+
+	public BiStream<L, R> unchunked() {
+		return new BiStream<>(new Unchunking<>(consume()), parallel).closingWith(closeHandlers);
+	}
+
+	public void forEachBatch(BatchConsumer<? super L, ? super R> sink) {
+		ChunkSpliterator<L, R> source = consume();
+		try {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					forEachBatch(leaf, sink);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				forEachBatch(source, sink);
+		} finally {
+			if (closeHandlers != null)
+				closeHandlers.run();
+		}
+	}
+
+	public void forEach(BiConsumer<? super L, ? super R> action) {
+		forEachBatch((lefts, rights, size) -> {
+			for (int i = 0; i < size; i++)
+				action.accept(lefts[i], rights[i]);
+		});
+	}
+
+
+	private static <L, R> void forEachBatch(ChunkSpliterator<L, R> source, BatchConsumer<? super L, ? super R> sink) {
+		Chunk<L, R> chunk;
+		while ((chunk = source.next()) != null)
+			sink.accept(chunk.lefts, chunk.rights, chunk.size);
+	}
+
+	private <L1, R1> ChunkedBiStream<L1, R1> next(ChunkSpliterator<L1, R1> stage) {
+		return new ChunkedBiStream<>(stage, parallel, chunkSize, closeHandlers);
+	}
+
+	private ChunkSpliterator<L, R> consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("ChunkedBiStream has already been operated upon.");
+		ChunkSpliterator<L, R> current = spliterator;
+		spliterator = null;
+		return current;
+	}
+
+
+	private static final class Source<L, R> implements ChunkSpliterator<L, R> {
+		private final BiSpliterator<L, R> source;
+		private final int chunkSize;
+		private final IntFunction<L[]> leftArrays;
+		private final IntFunction<R[]> rightArrays;
+		private final Chunk<L, R> chunk;
+		private final BiConsumer<L, R> append;
+
+		Source(BiSpliterator<L, R> source, int chunkSize, IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays) {
+			this.source = source;
+			this.chunkSize = chunkSize;
+			this.leftArrays = leftArrays;
+			this.rightArrays = rightArrays;
+			this.chunk = new Chunk<>(leftArrays.apply(chunkSize), rightArrays.apply(chunkSize));
+			this.append = (left, right) -> {
+				chunk.lefts[chunk.size] = left;
+				chunk.rights[chunk.size++] = right;
+			};
+		}
+
+		@Override
+		public Chunk<L, R> next() {
+			chunk.size = 0;
+			while (chunk.size < chunkSize && source.tryAdvance(append));
+			return chunk.size == 0 ? null : chunk;
+		}
+
+		@Override
+		public ChunkSpliterator<L, R> trySplit() {
+			BiSpliterator<L, R> prefix = source.trySplit();
+			return prefix == null ? null : new Source<>(prefix, chunkSize, leftArrays, rightArrays);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+
+	private static final class FilterBatch<L, R>
+			extends SpliteratorStage<ChunkSpliterator<L, R>, ChunkSpliterator<L, R>> implements ChunkSpliterator<L, R> {
+		private final BatchPredicate<? super L, ? super R> predicate;
+		private final boolean[] matches;
+
+		FilterBatch(ChunkSpliterator<L, R> source, BatchPredicate<? super L, ? super R> predicate, int chunkSize) {
+			super(source);
+			this.predicate = predicate;
+			this.matches = new boolean[chunkSize];
+		}
+
+		@Override
+		public Chunk<L, R> next() {
+			Chunk<L, R> chunk;
+			while ((chunk = source.next()) != null) {
+				predicate.test(chunk.lefts, chunk.rights, chunk.size, matches);
+				int kept = 0;
+				for (int i = 0; i < chunk.size; i++) {
+					if (matches[i]) {
+						chunk.lefts[kept] = chunk.lefts[i];
+						chunk.rights[kept++] = chunk.rights[i];
+					}
+				}
+				if (kept > 0) {
+					chunk.size = kept;
+					return chunk;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		ChunkSpliterator<L, R> wrap(ChunkSpliterator<L, R> prefix) {
+			return new FilterBatch<>(prefix, predicate, matches.length);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class MapRightBatch<L, R, M>
+			extends SpliteratorStage<ChunkSpliterator<L, R>, ChunkSpliterator<L, M>> implements ChunkSpliterator<L, M> {
+		private final IntFunction<M[]> arrays;
+		private final BatchFunction<? super L, ? super R, M> mapper;
+		private final Chunk<L, M> mapped;
+
+		MapRightBatch(ChunkSpliterator<L, R> source, M[] results, IntFunction<M[]> arrays,
+		              BatchFunction<? super L, ? super R, M> mapper) {
+			super(source);
+			this.arrays = arrays;
+			this.mapper = mapper;
+			this.mapped = new Chunk<>(null, results);
+		}
+
+		@Override
+		public Chunk<L, M> next() {
+			Chunk<L, R> chunk = source.next();
+			if (chunk == null)
+				return null;
+			mapper.apply(chunk.lefts, chunk.rights, chunk.size, mapped.rights);
+			mapped.lefts = chunk.lefts;
+			mapped.size = chunk.size;
+			return mapped;
+		}
+
+		@Override
+		ChunkSpliterator<L, M> wrap(ChunkSpliterator<L, R> prefix) {
+			return new MapRightBatch<>(prefix, arrays.apply(mapped.rights.length), arrays, mapper);
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & ~NONNULL;
+			return (characteristics & DISTINCT_LEFTS) != 0 ? characteristics : characteristics & ~DISTINCT;
+		}
+	}
+
+	private static final class Unchunking<L, R>
+			extends SpliteratorStage<ChunkSpliterator<L, R>, BiSpliterator<L, R>> implements BiSpliterator<L, R> {
+		private Chunk<L, R> chunk;
+		private int index;
+
+		Unchunking(ChunkSpliterator<L, R> source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (chunk == null || index == chunk.size) {
+				chunk = source.next();
+				index = 0;
+				if (chunk == null)
+					return false;
+			}
+			int current = index++;
+			action.accept(chunk.lefts[current], chunk.rights[current]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			while (chunk != null && index < chunk.size) {
+				int current = index++;
+				action.accept(chunk.lefts[current], chunk.rights[current]);
+			}
+			ChunkedBiStream.forEachBatch(source, (lefts, rights, size) -> {
+				for (int i = 0; i < size; i++)
+					action.accept(lefts[i], rights[i]);
+			});
+			chunk = null;
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			return chunk != null && index < chunk.size ? null : super.trySplit();
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize() + (chunk == null ? 0 : chunk.size - index);
+		}
+
+		@Override
+		BiSpliterator<L, R> wrap(ChunkSpliterator<L, R> prefix) {
+			return new Unchunking<>(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+}
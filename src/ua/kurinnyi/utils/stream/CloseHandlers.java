@@ -0,0 +1,46 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared by every stream of one pipeline, so closing any of them runs each handler exactly once.
+final class CloseHandlers implements Runnable {
+
+	private List<Runnable> handlers = new ArrayList<>(2);
+
+	static CloseHandlers of(Runnable handler) {
+		CloseHandlers handlers = new CloseHandlers();
+		handlers.add(handler);
+		return handlers;
+	}
+
+	void add(Runnable handler) {
+		if (handlers == null)
+			handler.run();
+		else
+			handlers.add(handler);
+	}
+
+	@Override
+	public void run() {
+		List<Runnable> pending = handlers;
+		if (pending == null)
+			return;
+		handlers = null;
+		Throwable failure = null;
+		for (Runnable handler : pending) {
+			try {
+				handler.run();
+			} catch (RuntimeException | Error e) {
+				if (failure == null)
+					failure = e;
+				else
+					failure.addSuppressed(e);
+			}
+		}
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure != null)
+			throw (RuntimeException) failure;
+	}
+}
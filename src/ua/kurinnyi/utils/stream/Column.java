@@ -0,0 +1,262 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+abstract class Column {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	int size;
+
+	static int initialCapacity(long expectedSize) {
+		return expectedSize < 0 || expectedSize > Integer.MAX_VALUE - 8 ? DEFAULT_CAPACITY : (int) expectedSize;
+	}
+
+	static int grownCapacity(int length, int minCapacity) {
+		return Math.max(minCapacity, Math.max(DEFAULT_CAPACITY, length + (length >> 1)));
+	}
+
+	abstract Object get(int index);
+
+	long getLong(int index) {
+		throw unsupported("long");
+	}
+
+	double getDouble(int index) {
+		throw unsupported("double");
+	}
+
+	int getInt(int index) {
+		throw unsupported("int");
+	}
+
+	abstract int compare(int first, int second, Comparator<Object> comparator);
+
+	abstract int compareTo(int index, Object key, Comparator<Object> comparator);
+
+	abstract void permute(int[] order);
+
+	abstract void appendAll(Column other);
+
+	private UnsupportedOperationException unsupported(String type) {
+		return new UnsupportedOperationException("Column doesn't store " + type + " values.");
+	}
+
+	@SuppressWarnings("unchecked")
+	static int compareNaturally(Object first, Object second) {
+		return ((Comparable<Object>) first).compareTo(second);
+	}
+
+
+	static final class Objects extends Column {
+		private Object[] values;
+
+		Objects(int capacity) {
+			values = new Object[capacity];
+		}
+
+		void add(Object value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+			values[size++] = value;
+		}
+
+		@Override
+		Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		int compare(int first, int second, Comparator<Object> comparator) {
+			return comparator == null
+					? compareNaturally(values[first], values[second])
+					: comparator.compare(values[first], values[second]);
+		}
+
+		@Override
+		int compareTo(int index, Object key, Comparator<Object> comparator) {
+			return comparator == null ? compareNaturally(values[index], key) : comparator.compare(values[index], key);
+		}
+
+		@Override
+		void permute(int[] order) {
+			Object[] permuted = new Object[values.length];
+			for (int i = 0; i < size; i++)
+				permuted[i] = values[order[i]];
+			values = permuted;
+		}
+
+		@Override
+		void appendAll(Column other) {
+			Objects objects = (Objects) other;
+			if (size + objects.size > values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + objects.size));
+			System.arraycopy(objects.values, 0, values, size, objects.size);
+			size += objects.size;
+		}
+	}
+
+	static final class Longs extends Column {
+		private long[] values;
+
+		Longs(int capacity) {
+			values = new long[capacity];
+		}
+
+		void addLong(long value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+			values[size++] = value;
+		}
+
+		@Override
+		Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		long getLong(int index) {
+			return values[index];
+		}
+
+		@Override
+		int compare(int first, int second, Comparator<Object> comparator) {
+			return comparator == null
+					? Long.compare(values[first], values[second])
+					: comparator.compare(values[first], values[second]);
+		}
+
+		@Override
+		int compareTo(int index, Object key, Comparator<Object> comparator) {
+			return comparator == null ? Long.compare(values[index], (Long) key) : comparator.compare(values[index], key);
+		}
+
+		@Override
+		void permute(int[] order) {
+			long[] permuted = new long[values.length];
+			for (int i = 0; i < size; i++)
+				permuted[i] = values[order[i]];
+			values = permuted;
+		}
+
+		@Override
+		void appendAll(Column other) {
+			Longs longs = (Longs) other;
+			if (size + longs.size > values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + longs.size));
+			System.arraycopy(longs.values, 0, values, size, longs.size);
+			size += longs.size;
+		}
+	}
+
+	static final class Doubles extends Column {
+		private double[] values;
+
+		Doubles(int capacity) {
+			values = new double[capacity];
+		}
+
+		void addDouble(double value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+			values[size++] = value;
+		}
+
+		@Override
+		Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		double getDouble(int index) {
+			return values[index];
+		}
+
+		@Override
+		int compare(int first, int second, Comparator<Object> comparator) {
+			return comparator == null
+					? Double.compare(values[first], values[second])
+					: comparator.compare(values[first], values[second]);
+		}
+
+		@Override
+		int compareTo(int index, Object key, Comparator<Object> comparator) {
+			return comparator == null
+					? Double.compare(values[index], (Double) key)
+					: comparator.compare(values[index], key);
+		}
+
+		@Override
+		void permute(int[] order) {
+			double[] permuted = new double[values.length];
+			for (int i = 0; i < size; i++)
+				permuted[i] = values[order[i]];
+			values = permuted;
+		}
+
+		@Override
+		void appendAll(Column other) {
+			Doubles doubles = (Doubles) other;
+			if (size + doubles.size > values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + doubles.size));
+			System.arraycopy(doubles.values, 0, values, size, doubles.size);
+			size += doubles.size;
+		}
+	}
+
+	static final class Ints extends Column {
+		private int[] values;
+
+		Ints(int capacity) {
+			values = new int[capacity];
+		}
+
+		void addInt(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + 1));
+			values[size++] = value;
+		}
+
+		@Override
+		Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		int getInt(int index) {
+			return values[index];
+		}
+
+		@Override
+		int compare(int first, int second, Comparator<Object> comparator) {
+			return comparator == null
+					? Integer.compare(values[first], values[second])
+					: comparator.compare(values[first], values[second]);
+		}
+
+		@Override
+		int compareTo(int index, Object key, Comparator<Object> comparator) {
+			return comparator == null
+					? Integer.compare(values[index], (Integer) key)
+					: comparator.compare(values[index], key);
+		}
+
+		@Override
+		void permute(int[] order) {
+			int[] permuted = new int[values.length];
+			for (int i = 0; i < size; i++)
+				permuted[i] = values[order[i]];
+			values = permuted;
+		}
+
+		@Override
+		void appendAll(Column other) {
+			Ints ints = (Ints) other;
+			if (size + ints.size > values.length)
+				values = Arrays.copyOf(values, grownCapacity(values.length, size + ints.size));
+			System.arraycopy(ints.values, 0, values, size, ints.size);
+			size += ints.size;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+final class Distinct<L, R> extends SpliteratorStage<BiSpliterator<L, R>, BiSpliterator<L, R>>
+		implements BiSpliterator<L, R> {
+
+	private static final Object NULL_KEY = new Object();
+
+	private final boolean byPair;
+	private CompactSet seen;
+	private Set<Object> shared;
+	private boolean matched;
+
+	private Distinct(BiSpliterator<L, R> source, boolean byPair, Set<Object> shared) {
+		super(source);
+		this.byPair = byPair;
+		this.shared = shared;
+		if (shared == null)
+			this.seen = new CompactSet(byPair);
+	}
+
+	static <L, R> BiSpliterator<L, R> byLeft(BiSpliterator<L, R> source) {
+		return new Distinct<>(source, false, null);
+	}
+
+	static <L, R> BiSpliterator<L, R> byPair(BiSpliterator<L, R> source) {
+		return new Distinct<>(source, true, null);
+	}
+
+	@Override
+	public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+		BiConsumer<L, R> sink = (left, right) -> {
+			if (firstOccurrence(left, right)) {
+				matched = true;
+				action.accept(left, right);
+			}
+		};
+		matched = false;
+		while (!matched && source.tryAdvance(sink));
+		return matched;
+	}
+
+	@Override
+	public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+		source.forEachRemaining((left, right) -> {
+			if (firstOccurrence(left, right))
+				action.accept(left, right);
+		});
+	}
+
+	// Halves of an ordered source can't tell which copy comes first, so only unordered sources split. They switch
+	// to one concurrent set shared by every half, which is only possible before anything has been seen.
+	@Override
+	public BiSpliterator<L, R> trySplit() {
+		if (source.hasCharacteristics(ORDERED) || seen != null && seen.size > 0)
+			return null;
+		BiSpliterator<L, R> prefix = source.trySplit();
+		if (prefix == null)
+			return null;
+		if (shared == null) {
+			shared = ConcurrentHashMap.newKeySet();
+			seen = null;
+		}
+		return wrap(prefix);
+	}
+
+	@Override
+	BiSpliterator<L, R> wrap(BiSpliterator<L, R> prefix) {
+		return new Distinct<>(prefix, byPair, shared);
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & ~(SIZED | SUBSIZED) | (byPair ? DISTINCT : DISTINCT | DISTINCT_LEFTS);
+	}
+
+	private boolean firstOccurrence(L left, R right) {
+		if (seen != null)
+			return seen.add(left, right);
+		Object key = byPair ? Pair.of(left, right) : left;
+		return shared.add(key == null ? NULL_KEY : key);
+	}
+
+
+	// Open addressing over plain arrays: no entry objects, and pairs are hashed without being wrapped.
+	private static final class CompactSet {
+		private Object[] lefts;
+		private Object[] rights;
+		private boolean[] used;
+		private int size;
+
+		CompactSet(boolean byPair) {
+			lefts = new Object[16];
+			rights = byPair ? new Object[16] : null;
+			used = new boolean[16];
+		}
+
+		boolean add(Object left, Object right) {
+			int mask = used.length - 1;
+			int index = hash(left, right) & mask;
+			while (used[index]) {
+				if (Objects.equals(lefts[index], left) && (rights == null || Objects.equals(rights[index], right)))
+					return false;
+				index = (index + 1) & mask;
+			}
+			used[index] = true;
+			lefts[index] = left;
+			if (rights != null)
+				rights[index] = right;
+			if (++size > used.length / 2)
+				grow();
+			return true;
+		}
+
+		private int hash(Object left, Object right) {
+			int hash = Objects.hashCode(left);
+			if (rights != null)
+				hash = 31 * hash + Objects.hashCode(right);
+			hash *= 0x9E3779B9;
+			return hash ^ hash >>> 16;
+		}
+
+		private void grow() {
+			Object[] oldLefts = lefts;
+			Object[] oldRights = rights;
+			boolean[] oldUsed = used;
+			lefts = new Object[oldUsed.length * 2];
+			rights = oldRights == null ? null : new Object[oldUsed.length * 2];
+			used = new boolean[oldUsed.length * 2];
+			size = 0;
+			for (int i = 0; i < oldUsed.length; i++)
+				if (oldUsed[i])
+					add(oldLefts[i], oldRights == null ? null : oldRights[i]);
+		}
+	}
+}
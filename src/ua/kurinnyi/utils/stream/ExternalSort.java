@@ -0,0 +1,272 @@
+package ua.kurinnyi.utils.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+import static java.util.Spliterator.*;
+
+final class ExternalSort<L, R> implements BiSpliterator<L, R> {
+
+	private final BiSpliterator<L, R> source;
+	private final Comparator<? super L> comparator;
+	private final PairCodec<L, R> codec;
+	private final int maxPairsInMemory;
+	private BiSpliterator<L, R> sorted;
+
+	ExternalSort(BiSpliterator<L, R> source, Comparator<? super L> comparator, PairCodec<L, R> codec,
+	             int maxPairsInMemory) {
+		this.source = source;
+		this.comparator = comparator;
+		this.codec = codec;
+		this.maxPairsInMemory = maxPairsInMemory;
+	}
+
+	static int checkedBudget(int maxPairsInMemory) {
+		if (maxPairsInMemory < 1)
+			throw new IllegalArgumentException("At least one pair should fit in memory: " + maxPairsInMemory);
+		return maxPairsInMemory;
+	}
+
+	static <L, R, A, D> BiSpliterator<L, D> grouped(BiSpliterator<L, R> sorted, Comparator<? super L> comparator,
+	                                                Collector<? super R, A, D> collector) {
+		return new Grouping<>(sorted, comparator, collector);
+	}
+
+	@Override
+	public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+		return sorted().tryAdvance(action);
+	}
+
+	@Override
+	public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+		sorted().forEachRemaining(action);
+	}
+
+	@Override
+	public BiSpliterator<L, R> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return sorted == null ? source.estimateSize() : sorted.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & (SIZED | DISTINCT | DISTINCT_LEFTS) | ORDERED | SORTED;
+	}
+
+	private BiSpliterator<L, R> sorted() {
+		if (sorted == null)
+			sorted = sort();
+		return sorted;
+	}
+
+	// Runs are sorted in memory and spilled while the source is read; the last run stays in memory for the merge.
+	private BiSpliterator<L, R> sort() {
+		List<Path> spilled = new ArrayList<>();
+		Run<L, R> run = new Run<>(maxPairsInMemory);
+		try {
+			BiConsumer<L, R> collect = (left, right) -> {
+				run.add(left, right);
+				if (run.size() == maxPairsInMemory) {
+					spilled.add(spill(run.sorted(comparator)));
+					run.clear();
+				}
+			};
+			source.forEachRemaining(collect);
+			List<BiSpliterator<L, R>> runs = new ArrayList<>(spilled.size() + 1);
+			for (Path file : spilled)
+				runs.add(MappedPairFile.read(file, codec));
+			runs.add(run.sorted(comparator));
+			return runs.size() == 1 ? runs.get(0) : new Merge<>(runs, comparator);
+		} finally {
+			for (Path file : spilled)
+				delete(file);
+		}
+	}
+
+	private Path spill(BiSpliterator<L, R> sortedRun) {
+		try {
+			Path file = Files.createTempFile("bistream-run-", ".bin");
+			MappedPairFile.write(file, codec, sortedRun);
+			return file;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Read runs stay mapped after their file is removed; platforms that refuse to remove it get it on exit instead.
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			file.toFile().deleteOnExit();
+		}
+	}
+
+
+	private static final class Run<L, R> {
+		private Column.Objects lefts;
+		private Column.Objects rights;
+
+		Run(int capacity) {
+			this.lefts = new Column.Objects(Math.min(capacity, 1 << 16));
+			this.rights = new Column.Objects(Math.min(capacity, 1 << 16));
+		}
+
+		void add(L left, R right) {
+			lefts.add(left);
+			rights.add(right);
+		}
+
+		int size() {
+			return lefts.size;
+		}
+
+		BiSpliterator<L, R> sorted(Comparator<? super L> comparator) {
+			return new PairBuffer<L, R>(lefts, rights, 0).sortByLeft(comparator).stream().consume();
+		}
+
+		void clear() {
+			int capacity = lefts.size;
+			lefts = new Column.Objects(capacity);
+			rights = new Column.Objects(capacity);
+		}
+	}
+
+	private static final class Merge<L, R> implements BiSpliterator<L, R> {
+		private final PriorityQueue<Cursor<L, R>> heads;
+		private long remaining;
+
+		Merge(List<BiSpliterator<L, R>> runs, Comparator<? super L> comparator) {
+			Comparator<Cursor<L, R>> order = (first, second) -> {
+				int comparison = comparator.compare(first.left, second.left);
+				return comparison != 0 ? comparison : Integer.compare(first.run, second.run);
+			};
+			this.heads = new PriorityQueue<>(runs.size(), order);
+			for (int i = 0; i < runs.size(); i++) {
+				Cursor<L, R> cursor = new Cursor<>(runs.get(i), i);
+				remaining += runs.get(i).estimateSize();
+				if (cursor.advance())
+					heads.add(cursor);
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			Cursor<L, R> head = heads.poll();
+			if (head == null)
+				return false;
+			L left = head.left;
+			R right = head.right;
+			if (head.advance())
+				heads.add(head);
+			remaining--;
+			action.accept(left, right);
+			return true;
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | SIZED;
+		}
+	}
+
+	private static final class Grouping<L, R, A, D> implements BiSpliterator<L, D> {
+		private final BiSpliterator<L, R> source;
+		private final Comparator<? super L> comparator;
+		private final Collector<? super R, A, D> collector;
+		private final BiConsumer<A, ? super R> accumulator;
+		private final BiConsumer<L, R> lookahead;
+		private boolean started;
+		private boolean hasNext;
+		private L nextLeft;
+		private R nextRight;
+
+		Grouping(BiSpliterator<L, R> source, Comparator<? super L> comparator, Collector<? super R, A, D> collector) {
+			this.source = source;
+			this.comparator = comparator;
+			this.collector = collector;
+			this.accumulator = collector.accumulator();
+			this.lookahead = (left, right) -> {
+				nextLeft = left;
+				nextRight = right;
+			};
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super D> action) {
+			if (!started) {
+				started = true;
+				hasNext = source.tryAdvance(lookahead);
+			}
+			if (!hasNext)
+				return false;
+			L key = nextLeft;
+			A container = collector.supplier().get();
+			do {
+				accumulator.accept(container, nextRight);
+				hasNext = source.tryAdvance(lookahead);
+			} while (hasNext && comparator.compare(key, nextLeft) == 0);
+			action.accept(key, collector.finisher().apply(container));
+			return true;
+		}
+
+		@Override
+		public BiSpliterator<L, D> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & (ORDERED | SORTED) | DISTINCT | DISTINCT_LEFTS;
+		}
+	}
+
+	private static final class Cursor<L, R> implements BiConsumer<L, R> {
+		private final BiSpliterator<L, R> source;
+		final int run;
+		L left;
+		R right;
+
+		Cursor(BiSpliterator<L, R> source, int run) {
+			this.source = source;
+			this.run = run;
+		}
+
+		boolean advance() {
+			return source.tryAdvance(this);
+		}
+
+		@Override
+		public void accept(L left, R right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+}
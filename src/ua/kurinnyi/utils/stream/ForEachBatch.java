@@ -0,0 +1,213 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+final class ForEachBatch {
+
+	private ForEachBatch() {
+	}
+
+	static <L, R> void run(BiSpliterator<L, R> source, boolean parallel, long maxLatencyNanos,
+	                       Supplier<Batch<L, R>> batches) {
+		if (maxLatencyNanos <= 0) {
+			run(source, parallel, batches);
+			return;
+		}
+		Queue<Batch<L, R>> open = new ConcurrentLinkedQueue<>();
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "bistream-batch-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), maxLatencyNanos / 2);
+		flusher.scheduleAtFixedRate(() -> {
+			long now = System.nanoTime();
+			for (Batch<L, R> batch : open) {
+				try {
+					batch.flushIfOlderThan(now - maxLatencyNanos);
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		}, period, period, TimeUnit.NANOSECONDS);
+		try {
+			run(source, parallel, () -> {
+				Batch<L, R> batch = batches.get();
+				batch.timed = true;
+				open.add(batch);
+				return batch;
+			});
+		} finally {
+			flusher.shutdownNow();
+		}
+		if (failure.get() != null)
+			throw failure.get();
+	}
+
+	private static <L, R> void run(BiSpliterator<L, R> source, boolean parallel, Supplier<Batch<L, R>> batches) {
+		if (!parallel) {
+			fill(source, batches.get());
+			return;
+		}
+		BiStreamTask.invoke(source, leaf -> {
+			fill(leaf, batches.get());
+			return null;
+		}, (ignored, alsoIgnored) -> null);
+	}
+
+	private static <L, R> void fill(BiSpliterator<L, R> source, Batch<L, R> batch) {
+		source.forEachRemaining(batch);
+		batch.flush();
+	}
+
+	static int checkedSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch should hold at least one pair.");
+		return batchSize;
+	}
+
+
+	static abstract class Batch<L, R> implements BiConsumer<L, R> {
+		private boolean timed;
+		private long firstAddedAt;
+
+		@Override
+		public final void accept(L left, R right) {
+			if (!timed) {
+				append(left, right);
+				return;
+			}
+			synchronized (this) {
+				if (size() == 0)
+					firstAddedAt = System.nanoTime();
+				append(left, right);
+			}
+		}
+
+		final void flush() {
+			if (!timed) {
+				drainIfNotEmpty();
+				return;
+			}
+			synchronized (this) {
+				drainIfNotEmpty();
+			}
+		}
+
+		final synchronized void flushIfOlderThan(long deadline) {
+			if (size() > 0 && firstAddedAt - deadline <= 0)
+				drain();
+		}
+
+		private void append(L left, R right) {
+			add(left, right);
+			if (isFull())
+				drain();
+		}
+
+		private void drainIfNotEmpty() {
+			if (size() > 0)
+				drain();
+		}
+
+		abstract void add(L left, R right);
+
+		abstract int size();
+
+		abstract boolean isFull();
+
+		abstract void drain();
+	}
+
+	static final class PairBatch<L, R> extends Batch<L, R> {
+		private final int capacity;
+		private final List<Pair<L, R>> buffer;
+		private final List<Pair<L, R>> view;
+		private final Consumer<? super List<Pair<L, R>>> sink;
+
+		PairBatch(int capacity, Consumer<? super List<Pair<L, R>>> sink) {
+			this.capacity = capacity;
+			this.buffer = new ArrayList<>(capacity);
+			this.view = Collections.unmodifiableList(buffer);
+			this.sink = sink;
+		}
+
+		@Override
+		void add(L left, R right) {
+			buffer.add(Pair.of(left, right));
+		}
+
+		@Override
+		int size() {
+			return buffer.size();
+		}
+
+		@Override
+		boolean isFull() {
+			return buffer.size() >= capacity;
+		}
+
+		@Override
+		void drain() {
+			try {
+				sink.accept(view);
+			} finally {
+				buffer.clear();
+			}
+		}
+	}
+
+	static final class ColumnBatch<L, R> extends Batch<L, R> {
+		private final L[] lefts;
+		private final R[] rights;
+		private final BatchConsumer<L, R> sink;
+		private int size;
+
+		ColumnBatch(int capacity, IntFunction<L[]> leftArrays, IntFunction<R[]> rightArrays, BatchConsumer<L, R> sink) {
+			this.lefts = leftArrays.apply(capacity);
+			this.rights = rightArrays.apply(capacity);
+			this.sink = sink;
+		}
+
+		@Override
+		void add(L left, R right) {
+			lefts[size] = left;
+			rights[size] = right;
+			size++;
+		}
+
+		@Override
+		int size() {
+			return size;
+		}
+
+		@Override
+		boolean isFull() {
+			return size >= lefts.length;
+		}
+
+		@Override
+		void drain() {
+			try {
+				sink.accept(lefts, rights, size);
+			} finally {
+				size = 0;
+			}
+		}
+	}
+}
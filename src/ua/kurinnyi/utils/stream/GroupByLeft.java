@@ -0,0 +1,105 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static java.util.Spliterator.ORDERED;
+import static java.util.stream.Collector.Characteristics.IDENTITY_FINISH;
+import static java.util.stream.Collector.Characteristics.UNORDERED;
+
+final class GroupByLeft {
+
+	private static final Object NULL_KEY = new Object();
+
+	private GroupByLeft() {
+	}
+
+	static <L, R, A, D> Map<L, D> collect(BiSpliterator<L, R> source, boolean parallel,
+	                                      Collector<? super R, A, D> collector) {
+		Map<L, A> containers;
+		if (!parallel)
+			containers = accumulate(source, collector);
+		else if (!source.hasCharacteristics(ORDERED) || collector.characteristics().contains(UNORDERED))
+			containers = accumulateConcurrently(source, collector);
+		else
+			containers = BiStreamTask.invoke(source, leaf -> accumulate(leaf, collector), (result, other) -> {
+				other.forEach((left, container) -> result.merge(left, container, collector.combiner()));
+				return result;
+			});
+		return finish(containers, collector);
+	}
+
+	static <R> Collector<R, ?, R> reducing(BinaryOperator<R> operator) {
+		return Collector.<R, Reduction<R>, R>of(Reduction::new,
+				(reduction, value) -> reduction.accept(value, operator),
+				(reduction, other) -> reduction.combine(other, operator),
+				reduction -> reduction.value);
+	}
+
+	static <R> Collector<R, ?, Long> counting() {
+		return Collector.<R, long[], Long>of(() -> new long[1],
+				(count, value) -> count[0]++,
+				(count, other) -> {
+					count[0] += other[0];
+					return count;
+				},
+				count -> count[0],
+				UNORDERED);
+	}
+
+	private static <L, R, A> Map<L, A> accumulate(BiSpliterator<L, R> source, Collector<? super R, A, ?> collector) {
+		Supplier<A> supplier = collector.supplier();
+		BiConsumer<A, ? super R> accumulator = collector.accumulator();
+		Function<L, A> newContainer = left -> supplier.get();
+		Map<L, A> containers = new HashMap<>();
+		source.forEachRemaining((left, right) -> accumulator.accept(containers.computeIfAbsent(left, newContainer), right));
+		return containers;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <L, R, A> Map<L, A> accumulateConcurrently(BiSpliterator<L, R> source,
+	                                                          Collector<? super R, A, ?> collector) {
+		BinaryOperator<A> combiner = collector.combiner();
+		ConcurrentHashMap<Object, A> shared = new ConcurrentHashMap<>();
+		BiStreamTask.invoke(source, leaf -> {
+			accumulate(leaf, collector).forEach((left, container) ->
+					shared.merge(left == null ? NULL_KEY : left, container, combiner));
+			return null;
+		}, (ignored, alsoIgnored) -> null);
+		Map<L, A> containers = new HashMap<>(HashJoin.capacityFor(shared.size()));
+		shared.forEach((left, container) -> containers.put(left == NULL_KEY ? null : (L) left, container));
+		return containers;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <L, A, D> Map<L, D> finish(Map<L, A> containers, Collector<?, A, D> collector) {
+		if (collector.characteristics().contains(IDENTITY_FINISH))
+			return (Map<L, D>) containers;
+		Function<A, D> finisher = collector.finisher();
+		((Map<L, Object>) containers).replaceAll((left, container) -> finisher.apply((A) container));
+		return (Map<L, D>) containers;
+	}
+
+
+	private static final class Reduction<R> {
+		private boolean present;
+		private R value;
+
+		void accept(R next, BinaryOperator<R> operator) {
+			value = present ? operator.apply(value, next) : next;
+			present = true;
+		}
+
+		Reduction<R> combine(Reduction<R> other, BinaryOperator<R> operator) {
+			if (other.present)
+				accept(other.value, operator);
+			return this;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import static java.util.Spliterator.ORDERED;
+
+final class HashJoin<K, V> {
+
+	private static final Object MISSING = new Object();
+	private static final Object NULL_VALUE = new Object();
+
+	private BiSpliterator<? extends K, ? extends V> buildSide;
+	private final boolean keysOnly;
+	private volatile Map<?, ?> table;
+	private final boolean masked;
+
+	private HashJoin(Map<?, ?> table, boolean masked) {
+		this.keysOnly = false;
+		this.table = table;
+		this.masked = masked;
+	}
+
+	private HashJoin(BiSpliterator<? extends K, ? extends V> buildSide, boolean keysOnly) {
+		this.buildSide = buildSide;
+		this.keysOnly = keysOnly;
+		this.masked = true;
+	}
+
+	// The build side is only drained by the first probe, so a join stays as lazy as any other intermediate stage.
+	static <K, V> HashJoin<K, V> build(BiSpliterator<? extends K, ? extends V> buildSide) {
+		return new HashJoin<>(buildSide, false);
+	}
+
+	static <K> HashJoin<K, Object> keysOf(BiSpliterator<? extends K, ?> buildSide) {
+		return new HashJoin<K, Object>(buildSide, true);
+	}
+
+	static int capacityFor(long expectedSize) {
+		return expectedSize < 0 ? 16 : (int) Math.min(expectedSize / 0.75f + 1, 1 << 30);
+	}
+
+	static <K, V> HashJoin<K, V> of(Map<? extends K, ? extends V> map) {
+		return new HashJoin<>(map, false);
+	}
+
+	<R, M> BiSpliterator<K, M> probe(BiSpliterator<K, R> probeSide,
+	                                 BiFunction<? super R, ? super V, ? extends M> combiner,
+	                                 boolean keepUnmatched) {
+		return new Probe<>(probeSide, this, combiner, keepUnmatched);
+	}
+
+	boolean containsKey(Object key) {
+		return table().containsKey(key);
+	}
+
+	private Object find(Object key) {
+		Map<?, ?> built = table();
+		Object value = built.get(key);
+		if (value == null && !built.containsKey(key))
+			return MISSING;
+		return value;
+	}
+
+	// Parallel leaves may probe concurrently, so exactly one of them drains the build side.
+	private Map<?, ?> table() {
+		Map<?, ?> built = table;
+		if (built == null) {
+			synchronized (this) {
+				built = table;
+				if (built == null)
+					table = built = drain();
+			}
+		}
+		return built;
+	}
+
+	private Map<Object, Object> drain() {
+		Map<Object, Object> built = new HashMap<>(capacityFor(buildSide.getExactSizeIfKnown()));
+		if (keysOnly)
+			buildSide.forEachRemaining((key, value) -> built.put(key, NULL_VALUE));
+		else
+			buildSide.forEachRemaining((key, value) -> built.compute(key, (sameKey, existing) -> {
+				Object stored = value == null ? NULL_VALUE : value;
+				if (existing == null)
+					return stored;
+				if (existing instanceof Duplicates) {
+					((Duplicates) existing).values.add(stored);
+					return existing;
+				}
+				return new Duplicates(existing, stored);
+			}));
+		buildSide = null;
+		return built;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V unmask(Object value) {
+		return masked && value == NULL_VALUE ? null : (V) value;
+	}
+
+
+	private static final class Duplicates {
+		final List<Object> values = new ArrayList<>(4);
+
+		Duplicates(Object first, Object second) {
+			values.add(first);
+			values.add(second);
+		}
+	}
+
+	private static final class Probe<K, R, V, M>
+			extends SpliteratorStage<BiSpliterator<K, R>, BiSpliterator<K, M>> implements BiSpliterator<K, M> {
+		private final HashJoin<K, V> join;
+		private final BiFunction<? super R, ? super V, ? extends M> combiner;
+		private final boolean keepUnmatched;
+
+		private K pendingKey;
+		private R pendingRight;
+		private Duplicates pendingMatches;
+		private int pendingIndex;
+		private boolean emitted;
+
+		Probe(BiSpliterator<K, R> source, HashJoin<K, V> join,
+		      BiFunction<? super R, ? super V, ? extends M> combiner, boolean keepUnmatched) {
+			super(source);
+			this.join = join;
+			this.combiner = combiner;
+			this.keepUnmatched = keepUnmatched;
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super K, ? super M> action) {
+			if (pendingMatches != null) {
+				action.accept(pendingKey, combiner.apply(pendingRight, join.unmask(pendingMatches.values.get(pendingIndex++))));
+				if (pendingIndex == pendingMatches.values.size())
+					clearPending();
+				return true;
+			}
+			BiConsumer<K, R> probe = (key, right) -> {
+				Object found = join.find(key);
+				if (found == MISSING) {
+					if (keepUnmatched) {
+						emitted = true;
+						action.accept(key, combiner.apply(right, null));
+					}
+				} else if (found instanceof Duplicates) {
+					emitted = true;
+					pendingKey = key;
+					pendingRight = right;
+					pendingMatches = (Duplicates) found;
+					pendingIndex = 1;
+					action.accept(key, combiner.apply(right, join.unmask(pendingMatches.values.get(0))));
+				} else {
+					emitted = true;
+					action.accept(key, combiner.apply(right, join.unmask(found)));
+				}
+			};
+			emitted = false;
+			while (!emitted && source.tryAdvance(probe));
+			return emitted;
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super K, ? super M> action) {
+			while (pendingMatches != null)
+				tryAdvance(action);
+			source.forEachRemaining((key, right) -> {
+				Object found = join.find(key);
+				if (found == MISSING) {
+					if (keepUnmatched)
+						action.accept(key, combiner.apply(right, null));
+				} else if (found instanceof Duplicates) {
+					for (Object match : ((Duplicates) found).values)
+						action.accept(key, combiner.apply(right, join.unmask(match)));
+				} else {
+					action.accept(key, combiner.apply(right, join.unmask(found)));
+				}
+			});
+		}
+
+		@Override
+		public BiSpliterator<K, M> trySplit() {
+			return pendingMatches == null ? super.trySplit() : null;
+		}
+
+		@Override
+		BiSpliterator<K, M> wrap(BiSpliterator<K, R> prefix) {
+			return new Probe<>(prefix, join, combiner, keepUnmatched);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ORDERED;
+		}
+
+		private void clearPending() {
+			pendingKey = null;
+			pendingRight = null;
+			pendingMatches = null;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+import static java.util.stream.Collector.Characteristics.UNORDERED;
+
+final class HyperLogLog {
+
+	static final int DEFAULT_PRECISION = 12;
+	private static final int MIN_PRECISION = 4;
+	private static final int MAX_PRECISION = 16;
+	private static final int RANK_BITS = 6;
+
+	private final int precision;
+	private int[] sparse = new int[4];
+	private int sparseSize;
+	private byte[] registers;
+
+	private HyperLogLog(int precision) {
+		this.precision = precision;
+	}
+
+	static int checkedPrecision(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+			throw new IllegalArgumentException("Precision should be between " + MIN_PRECISION + " and "
+					+ MAX_PRECISION + ": " + precision);
+		return precision;
+	}
+
+	static <R> Collector<R, ?, Long> collector(int precision, ToLongFunction<? super R> hasher) {
+		return Collector.of(() -> new HyperLogLog(precision),
+				(sketch, value) -> sketch.add(hasher.applyAsLong(value)),
+				HyperLogLog::merge,
+				HyperLogLog::estimate,
+				UNORDERED);
+	}
+
+	void add(long valueHash) {
+		long hash = mix(valueHash);
+		int index = (int) (hash >>> (64 - precision));
+		int rank = Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1;
+		set(index, rank);
+	}
+
+	HyperLogLog merge(HyperLogLog other) {
+		if (other.registers != null) {
+			toDense();
+			for (int i = 0; i < registers.length; i++)
+				registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+		} else {
+			for (int i = 0; i < other.sparseSize; i++)
+				set(other.sparse[i] >>> RANK_BITS, other.sparse[i] & (1 << RANK_BITS) - 1);
+		}
+		return this;
+	}
+
+	long estimate() {
+		int m = 1 << precision;
+		double sum;
+		int zeros;
+		if (registers == null) {
+			zeros = m - sparseSize;
+			sum = zeros;
+			for (int i = 0; i < sparseSize; i++)
+				sum += Math.scalb(1.0, -(sparse[i] & (1 << RANK_BITS) - 1));
+		} else {
+			zeros = 0;
+			sum = 0;
+			for (byte register : registers) {
+				if (register == 0)
+					zeros++;
+				sum += Math.scalb(1.0, -register);
+			}
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0)
+			estimate = m * Math.log((double) m / zeros);
+		return Math.round(estimate);
+	}
+
+	// Keys with few distinct values keep sorted (index, rank) entries instead of a register per bucket; the array
+	// only becomes dense once it would take as much memory as the registers.
+	private void set(int index, int rank) {
+		if (registers != null) {
+			if (rank > registers[index])
+				registers[index] = (byte) rank;
+			return;
+		}
+		int position = find(index);
+		if (position >= 0) {
+			if (rank > (sparse[position] & (1 << RANK_BITS) - 1))
+				sparse[position] = index << RANK_BITS | rank;
+			return;
+		}
+		if (sparseSize >= (1 << precision) / 4) {
+			toDense();
+			set(index, rank);
+			return;
+		}
+		position = -(position + 1);
+		if (sparseSize == sparse.length)
+			sparse = Arrays.copyOf(sparse, sparseSize * 2);
+		System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+		sparse[position] = index << RANK_BITS | rank;
+		sparseSize++;
+	}
+
+	private int find(int index) {
+		int low = 0;
+		int high = sparseSize - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int current = sparse[middle] >>> RANK_BITS;
+			if (current < index)
+				low = middle + 1;
+			else if (current > index)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -(low + 1);
+	}
+
+	private void toDense() {
+		if (registers != null)
+			return;
+		registers = new byte[1 << precision];
+		for (int i = 0; i < sparseSize; i++)
+			registers[sparse[i] >>> RANK_BITS] = (byte) (sparse[i] & (1 << RANK_BITS) - 1);
+		sparse = null;
+		sparseSize = 0;
+	}
+
+	private static double alpha(int m) {
+		switch (m) {
+			case 16:
+				return 0.673;
+			case 32:
+				return 0.697;
+			case 64:
+				return 0.709;
+			default:
+				return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+
+	// Spreads hash codes of small integers and similar values over all 64 bits (finalizer of MurmurHash3).
+	private static long mix(long valueHash) {
+		long hash = valueHash * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ hash >>> 33;
+	}
+}
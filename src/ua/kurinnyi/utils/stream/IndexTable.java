@@ -0,0 +1,92 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntUnaryOperator;
+
+// Shared layout of the read-only indexes: distinct keys get ordinals in encounter order, slots hold ordinal + 1 in
+// an open-addressing table kept at most half full, and the values of ordinal i sit in starts[i]..starts[i + 1].
+final class IndexTable {
+
+	static final int INITIAL_KEYS = 16;
+
+	private IndexTable() {
+	}
+
+	static int hash(Object key) {
+		int hash = Objects.hashCode(key) * 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+
+	static int hash(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ hash >>> 32);
+	}
+
+	static int hash(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+
+	static int[] slots(int keyCount, int capacity, IntUnaryOperator hashOfOrdinal) {
+		int[] slots = new int[capacity];
+		int mask = capacity - 1;
+		for (int ordinal = 0; ordinal < keyCount; ordinal++) {
+			int index = hashOfOrdinal.applyAsInt(ordinal) & mask;
+			while (slots[index] != 0)
+				index = (index + 1) & mask;
+			slots[index] = ordinal + 1;
+		}
+		return slots;
+	}
+
+	static boolean isFull(int keyCount, int[] slots) {
+		return keyCount > slots.length / 2;
+	}
+
+	static int[] starts(int[] ordinals, int keyCount) {
+		int[] starts = new int[keyCount + 1];
+		for (int ordinal : ordinals)
+			starts[ordinal + 1]++;
+		for (int i = 0; i < keyCount; i++)
+			starts[i + 1] += starts[i];
+		return starts;
+	}
+
+	// Position of every pair in the grouped value array; pairs of one key keep their encounter order.
+	static int[] positions(int[] ordinals, int[] starts) {
+		int[] next = Arrays.copyOf(starts, starts.length - 1);
+		int[] positions = new int[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++)
+			positions[i] = next[ordinals[i]]++;
+		return positions;
+	}
+
+
+	static final class Values<R> extends AbstractList<R> implements RandomAccess {
+		private final Object[] values;
+		private final int from;
+		private final int size;
+
+		Values(Object[] values, int from, int to) {
+			this.values = values;
+			this.from = from;
+			this.size = to - from;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+			return (R) values[from + index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.IntIntConsumer;
+import ua.kurinnyi.utils.tuple.IntIntPredicate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.*;
+import java.util.stream.IntStream;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class IntIntBiStream {
+
+	private IntIntSpliterator spliterator;
+	private boolean parallel;
+	private final CloseHandlers closeHandlers;
+
+	IntIntBiStream(IntIntSpliterator spliterator, boolean parallel, CloseHandlers closeHandlers) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
+		this.closeHandlers = closeHandlers;
+	}
+
+	public static IntIntBiStream map(IntStream stream, IntUnaryOperator mapper) {
+		return new IntIntBiStream(new Source(stream.spliterator(), mapper), stream.isParallel(),
+				CloseHandlers.of(stream::close));
+	}
+
+	static <L, R> IntIntSpliterator fromBiSpliterator(BiSpliterator<L, R> source,
+	                                                      ToIntBiFunction<? super L, ? super R> leftMapper,
+	                                                      ToIntBiFunction<? super L, ? super R> rightMapper) {
+		return new Unboxing<>(source, leftMapper, rightMapper);
+	}
+
+
+	public IntIntBiStream parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public IntIntBiStream sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public IntIntBiStream filter(IntIntPredicate predicate) {
+		return next(new Filter(consume(), predicate));
+	}
+
+	public IntIntBiStream mapLeft(IntBinaryOperator mapper) {
+		return next(new MapLeft(consume(), mapper));
+	}
+
+	public IntIntBiStream mapRight(IntBinaryOperator mapper) {
+		return next(new MapRight(consume(), mapper));
+	}
+
+	public IntIntBiStream swap() {
+		return next(new Swap(consume()));
+	}
+
+	public BiStream<Integer, Integer> boxed() {
+		return new BiStream<>(new Boxing(consume()), parallel).closingWith(closeHandlers);
+	}
+
+	public PairBuffer<Integer, Integer> toColumns() {
+		return terminal(source -> PairBuffer.collect(source, parallel, expectedSize -> new PairBuffer<>(
+						new Column.Ints(Column.initialCapacity(expectedSize)),
+						new Column.Ints(Column.initialCapacity(expectedSize)), 0),
+				(leaf, buffer) -> leaf.forEachRemaining((left, right) -> {
+					((Column.Ints) buffer.lefts()).addInt(left);
+					((Column.Ints) buffer.rights()).addInt(right);
+				})));
+	}
+
+	public IntIntIndex toIndex() {
+		return IntIntIndex.of(toColumns());
+	}
+
+	public void forEach(IntIntConsumer action) {
+		terminal(source -> {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					leaf.forEachRemaining(action);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				source.forEachRemaining(action);
+			return null;
+		});
+	}
+
+	public Map<Integer, Integer> toMap() {
+		return toMap((value, newValue) -> newValue);
+	}
+
+	public Map<Integer, Integer> toMap(IntBinaryOperator mergeFunction) {
+		return terminal(source -> {
+			if (!parallel)
+				return toMap(source, mergeFunction);
+			return BiStreamTask.invoke(source, leaf -> toMap(leaf, mergeFunction), (result, other) -> {
+				other.forEach((left, right) -> result.merge(left, right, mergeFunction::applyAsInt));
+				return result;
+			});
+		});
+	}
+
+
+	private static Map<Integer, Integer> toMap(IntIntSpliterator source, IntBinaryOperator mergeFunction) {
+		Map<Integer, Integer> result = new HashMap<>();
+		source.forEachRemaining((left, right) -> result.merge(left, right, mergeFunction::applyAsInt));
+		return result;
+	}
+
+	private IntIntBiStream next(IntIntSpliterator stage) {
+		return new IntIntBiStream(stage, parallel, closeHandlers);
+	}
+
+	private <T> T terminal(Function<IntIntSpliterator, T> body) {
+		IntIntSpliterator source = consume();
+		try {
+			return body.apply(source);
+		} finally {
+			if (closeHandlers != null)
+				closeHandlers.run();
+		}
+	}
+
+	private IntIntSpliterator consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("IntIntBiStream has already been operated upon.");
+		IntIntSpliterator current = spliterator;
+		spliterator = null;
+		return current;
+	}
+
+
+	private static final class Source implements IntIntSpliterator {
+		private final Spliterator.OfInt source;
+		private final IntUnaryOperator mapper;
+
+		Source(Spliterator.OfInt source, IntUnaryOperator mapper) {
+			this.source = source;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			return source.tryAdvance((int value) -> action.accept(value, mapper.applyAsInt(value)));
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((int value) -> action.accept(value, mapper.applyAsInt(value)));
+		}
+
+		@Override
+		public IntIntSpliterator trySplit() {
+			Spliterator.OfInt prefix = source.trySplit();
+			return prefix == null ? null : new Source(prefix, mapper);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & (ORDERED | SIZED | SUBSIZED | DISTINCT);
+			return (characteristics & DISTINCT) != 0 ? characteristics | DISTINCT_LEFTS : characteristics;
+		}
+	}
+
+	private static final class Filter
+			extends SpliteratorStage<IntIntSpliterator, IntIntSpliterator> implements IntIntSpliterator {
+		private final IntIntPredicate predicate;
+		private boolean matched;
+
+		Filter(IntIntSpliterator source, IntIntPredicate predicate) {
+			super(source);
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			IntIntConsumer sink = (left, right) -> {
+				if (predicate.test(left, right)) {
+					matched = true;
+					action.accept(left, right);
+				}
+			};
+			matched = false;
+			while (!matched && source.tryAdvance(sink));
+			return matched;
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((left, right) -> {
+				if (predicate.test(left, right))
+					action.accept(left, right);
+			});
+		}
+
+		@Override
+		IntIntSpliterator wrap(IntIntSpliterator prefix) {
+			return new Filter(prefix, predicate);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class MapLeft
+			extends SpliteratorStage<IntIntSpliterator, IntIntSpliterator> implements IntIntSpliterator {
+		private final IntBinaryOperator mapper;
+
+		MapLeft(IntIntSpliterator source, IntBinaryOperator mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			return source.tryAdvance((left, right) -> action.accept(mapper.applyAsInt(left, right), right));
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((left, right) -> action.accept(mapper.applyAsInt(left, right), right));
+		}
+
+		@Override
+		IntIntSpliterator wrap(IntIntSpliterator prefix) {
+			return new MapLeft(prefix, mapper);
+		}
+	}
+
+	private static final class MapRight
+			extends SpliteratorStage<IntIntSpliterator, IntIntSpliterator> implements IntIntSpliterator {
+		private final IntBinaryOperator mapper;
+
+		MapRight(IntIntSpliterator source, IntBinaryOperator mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			return source.tryAdvance((left, right) -> action.accept(left, mapper.applyAsInt(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((left, right) -> action.accept(left, mapper.applyAsInt(left, right)));
+		}
+
+		@Override
+		IntIntSpliterator wrap(IntIntSpliterator prefix) {
+			return new MapRight(prefix, mapper);
+		}
+	}
+
+	private static final class Swap
+			extends SpliteratorStage<IntIntSpliterator, IntIntSpliterator> implements IntIntSpliterator {
+
+		Swap(IntIntSpliterator source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			return source.tryAdvance((left, right) -> action.accept(right, left));
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((left, right) -> action.accept(right, left));
+		}
+
+		@Override
+		IntIntSpliterator wrap(IntIntSpliterator prefix) {
+			return new Swap(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SORTED | DISTINCT_LEFTS);
+		}
+	}
+
+	private static final class Unboxing<L, R>
+			extends SpliteratorStage<BiSpliterator<L, R>, IntIntSpliterator> implements IntIntSpliterator {
+		private final ToIntBiFunction<? super L, ? super R> leftMapper;
+		private final ToIntBiFunction<? super L, ? super R> rightMapper;
+
+		Unboxing(BiSpliterator<L, R> source, ToIntBiFunction<? super L, ? super R> leftMapper,
+		         ToIntBiFunction<? super L, ? super R> rightMapper) {
+			super(source);
+			this.leftMapper = leftMapper;
+			this.rightMapper = rightMapper;
+		}
+
+		@Override
+		public boolean tryAdvance(IntIntConsumer action) {
+			return source.tryAdvance((left, right) ->
+					action.accept(leftMapper.applyAsInt(left, right), rightMapper.applyAsInt(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(IntIntConsumer action) {
+			source.forEachRemaining((left, right) ->
+					action.accept(leftMapper.applyAsInt(left, right), rightMapper.applyAsInt(left, right)));
+		}
+
+		@Override
+		IntIntSpliterator wrap(BiSpliterator<L, R> prefix) {
+			return new Unboxing<>(prefix, leftMapper, rightMapper);
+		}
+	}
+
+	private static final class Boxing
+			extends SpliteratorStage<IntIntSpliterator, BiSpliterator<Integer, Integer>> implements BiSpliterator<Integer, Integer> {
+
+		Boxing(IntIntSpliterator source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super Integer, ? super Integer> action) {
+			return source.tryAdvance(action::accept);
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super Integer, ? super Integer> action) {
+			source.forEachRemaining(action::accept);
+		}
+
+		@Override
+		BiSpliterator<Integer, Integer> wrap(IntIntSpliterator prefix) {
+			return new Boxing(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.IntIntConsumer;
+
+import java.util.Arrays;
+
+public final class IntIntIndex {
+
+	private final int[] keys;
+	private final int[] starts;
+	private final int[] values;
+	private final int[] slots;
+
+	private IntIntIndex(int[] keys, int[] starts, int[] values, int[] slots) {
+		this.keys = keys;
+		this.starts = starts;
+		this.values = values;
+		this.slots = slots;
+	}
+
+	static IntIntIndex of(PairBuffer<Integer, Integer> pairs) {
+		IntKeys keys = new IntKeys();
+		int[] ordinals = new int[pairs.size()];
+		for (int i = 0; i < ordinals.length; i++)
+			ordinals[i] = keys.ordinal(pairs.lefts().getInt(i));
+		int[] starts = IndexTable.starts(ordinals, keys.count);
+		int[] positions = IndexTable.positions(ordinals, starts);
+		int[] values = new int[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++)
+			values[positions[i]] = pairs.rights().getInt(i);
+		return new IntIntIndex(Arrays.copyOf(keys.keys, keys.count), starts, values, keys.slots);
+	}
+
+	public int[] get(int key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? new int[0] : Arrays.copyOfRange(values, starts[ordinal], starts[ordinal + 1]);
+	}
+
+	public int getFirst(int key, int defaultValue) {
+		int ordinal = find(key);
+		return ordinal < 0 ? defaultValue : values[starts[ordinal]];
+	}
+
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	public int keyCount() {
+		return keys.length;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public void forEach(IntIntConsumer action) {
+		for (int ordinal = 0; ordinal < keys.length; ordinal++)
+			for (int i = starts[ordinal]; i < starts[ordinal + 1]; i++)
+				action.accept(keys[ordinal], values[i]);
+	}
+
+	private int find(int key) {
+		return IntKeys.find(key, keys, slots);
+	}
+
+
+	private static final class IntKeys {
+		private int[] keys = new int[IndexTable.INITIAL_KEYS];
+		private int[] slots = new int[IndexTable.INITIAL_KEYS * 2];
+		private int count;
+
+		static int find(int key, int[] keys, int[] slots) {
+			int mask = slots.length - 1;
+			for (int index = IndexTable.hash(key) & mask; slots[index] != 0; index = (index + 1) & mask)
+				if (keys[slots[index] - 1] == key)
+					return slots[index] - 1;
+			return -1;
+		}
+
+		int ordinal(int key) {
+			int mask = slots.length - 1;
+			int index = IndexTable.hash(key) & mask;
+			while (slots[index] != 0) {
+				if (keys[slots[index] - 1] == key)
+					return slots[index] - 1;
+				index = (index + 1) & mask;
+			}
+			if (count == keys.length)
+				keys = Arrays.copyOf(keys, count * 2);
+			keys[count] = key;
+			slots[index] = ++count;
+			if (IndexTable.isFull(count, slots))
+				slots = IndexTable.slots(count, slots.length * 2, ordinal -> IndexTable.hash(keys[ordinal]));
+			return count - 1;
+		}
+	}
+}
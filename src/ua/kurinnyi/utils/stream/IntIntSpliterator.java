@@ -0,0 +1,12 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.IntIntConsumer;
+
+interface IntIntSpliterator extends BaseSpliterator<IntIntSpliterator> {
+
+	boolean tryAdvance(IntIntConsumer action);
+
+	default void forEachRemaining(IntIntConsumer action) {
+		while (tryAdvance(action));
+	}
+}
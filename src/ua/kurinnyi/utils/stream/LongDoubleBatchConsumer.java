@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleBatchConsumer {
+	void accept(long[] lefts, double[] rights, int size);
+}
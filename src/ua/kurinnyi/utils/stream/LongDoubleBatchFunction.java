@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleBatchFunction {
+	void apply(long[] lefts, double[] rights, int size, double[] results);
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleBatchPredicate {
+	void test(long[] lefts, double[] rights, int size, boolean[] matches);
+}
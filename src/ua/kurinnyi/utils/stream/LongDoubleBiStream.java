@@ -0,0 +1,339 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.*;
+import java.util.stream.LongStream;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class LongDoubleBiStream {
+
+	private LongDoubleSpliterator spliterator;
+	private boolean parallel;
+	private final CloseHandlers closeHandlers;
+
+	LongDoubleBiStream(LongDoubleSpliterator spliterator, boolean parallel, CloseHandlers closeHandlers) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
+		this.closeHandlers = closeHandlers;
+	}
+
+	public static LongDoubleBiStream map(LongStream stream, LongToDoubleFunction mapper) {
+		return new LongDoubleBiStream(new Source(stream.spliterator(), mapper), stream.isParallel(),
+				CloseHandlers.of(stream::close));
+	}
+
+	static <L, R> LongDoubleSpliterator fromBiSpliterator(BiSpliterator<L, R> source,
+	                                                      ToLongBiFunction<? super L, ? super R> leftMapper,
+	                                                      ToDoubleBiFunction<? super L, ? super R> rightMapper) {
+		return new Unboxing<>(source, leftMapper, rightMapper);
+	}
+
+
+	public LongDoubleBiStream parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public LongDoubleBiStream sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public LongDoubleBiStream filter(LongDoublePredicate predicate) {
+		return next(new Filter(consume(), predicate));
+	}
+
+	public LongDoubleBiStream mapLeft(LongDoubleToLongFunction mapper) {
+		return next(new MapLeft(consume(), mapper));
+	}
+
+	public LongDoubleBiStream mapRight(LongDoubleToDoubleFunction mapper) {
+		return next(new MapRight(consume(), mapper));
+	}
+
+	public BiStream<Double, Long> swap() {
+		return boxed().swap();
+	}
+
+	public BiStream<Long, Double> boxed() {
+		return new BiStream<>(new Boxing(consume()), parallel).closingWith(closeHandlers);
+	}
+
+	public LongDoubleChunkedBiStream chunked() {
+		return chunked(ChunkedBiStream.DEFAULT_CHUNK_SIZE);
+	}
+
+	public LongDoubleChunkedBiStream chunked(int chunkSize) {
+		int size = ForEachBatch.checkedSize(chunkSize);
+		return new LongDoubleChunkedBiStream(LongDoubleChunkedBiStream.chunking(consume(), size), parallel, size,
+				closeHandlers);
+	}
+
+	public PairBuffer<Long, Double> toColumns() {
+		return terminal(source -> PairBuffer.collect(source, parallel, expectedSize -> new PairBuffer<>(
+						new Column.Longs(Column.initialCapacity(expectedSize)),
+						new Column.Doubles(Column.initialCapacity(expectedSize)), 0),
+				(leaf, buffer) -> leaf.forEachRemaining((left, right) -> {
+					((Column.Longs) buffer.lefts()).addLong(left);
+					((Column.Doubles) buffer.rights()).addDouble(right);
+				})));
+	}
+
+	public LongDoubleIndex toIndex() {
+		return LongDoubleIndex.of(toColumns());
+	}
+
+	public void forEach(LongDoubleConsumer action) {
+		terminal(source -> {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					leaf.forEachRemaining(action);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				source.forEachRemaining(action);
+			return null;
+		});
+	}
+
+	public Map<Long, Double> toMap() {
+		return toMap((value, newValue) -> newValue);
+	}
+
+	public Map<Long, Double> toMap(DoubleBinaryOperator mergeFunction) {
+		return terminal(source -> {
+			if (!parallel)
+				return toMap(source, mergeFunction);
+			return BiStreamTask.invoke(source, leaf -> toMap(leaf, mergeFunction), (result, other) -> {
+				other.forEach((left, right) -> result.merge(left, right, mergeFunction::applyAsDouble));
+				return result;
+			});
+		});
+	}
+
+
+	private static Map<Long, Double> toMap(LongDoubleSpliterator source, DoubleBinaryOperator mergeFunction) {
+		Map<Long, Double> result = new HashMap<>();
+		source.forEachRemaining((left, right) -> result.merge(left, right, mergeFunction::applyAsDouble));
+		return result;
+	}
+
+	private LongDoubleBiStream next(LongDoubleSpliterator stage) {
+		return new LongDoubleBiStream(stage, parallel, closeHandlers);
+	}
+
+	private <T> T terminal(Function<LongDoubleSpliterator, T> body) {
+		LongDoubleSpliterator source = consume();
+		try {
+			return body.apply(source);
+		} finally {
+			if (closeHandlers != null)
+				closeHandlers.run();
+		}
+	}
+
+	private LongDoubleSpliterator consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("LongDoubleBiStream has already been operated upon.");
+		LongDoubleSpliterator current = spliterator;
+		spliterator = null;
+		return current;
+	}
+
+
+	private static final class Source implements LongDoubleSpliterator {
+		private final Spliterator.OfLong source;
+		private final LongToDoubleFunction mapper;
+
+		Source(Spliterator.OfLong source, LongToDoubleFunction mapper) {
+			this.source = source;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			return source.tryAdvance((long value) -> action.accept(value, mapper.applyAsDouble(value)));
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			source.forEachRemaining((long value) -> action.accept(value, mapper.applyAsDouble(value)));
+		}
+
+		@Override
+		public LongDoubleSpliterator trySplit() {
+			Spliterator.OfLong prefix = source.trySplit();
+			return prefix == null ? null : new Source(prefix, mapper);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & (ORDERED | SIZED | SUBSIZED | DISTINCT);
+			return (characteristics & DISTINCT) != 0 ? characteristics | DISTINCT_LEFTS : characteristics;
+		}
+	}
+
+	private static final class Filter
+			extends SpliteratorStage<LongDoubleSpliterator, LongDoubleSpliterator> implements LongDoubleSpliterator {
+		private final LongDoublePredicate predicate;
+		private boolean matched;
+
+		Filter(LongDoubleSpliterator source, LongDoublePredicate predicate) {
+			super(source);
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			LongDoubleConsumer sink = (left, right) -> {
+				if (predicate.test(left, right)) {
+					matched = true;
+					action.accept(left, right);
+				}
+			};
+			matched = false;
+			while (!matched && source.tryAdvance(sink));
+			return matched;
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			source.forEachRemaining((left, right) -> {
+				if (predicate.test(left, right))
+					action.accept(left, right);
+			});
+		}
+
+		@Override
+		LongDoubleSpliterator wrap(LongDoubleSpliterator prefix) {
+			return new Filter(prefix, predicate);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class MapLeft
+			extends SpliteratorStage<LongDoubleSpliterator, LongDoubleSpliterator> implements LongDoubleSpliterator {
+		private final LongDoubleToLongFunction mapper;
+
+		MapLeft(LongDoubleSpliterator source, LongDoubleToLongFunction mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			return source.tryAdvance((left, right) -> action.accept(mapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			source.forEachRemaining((left, right) -> action.accept(mapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		LongDoubleSpliterator wrap(LongDoubleSpliterator prefix) {
+			return new MapLeft(prefix, mapper);
+		}
+	}
+
+	private static final class MapRight
+			extends SpliteratorStage<LongDoubleSpliterator, LongDoubleSpliterator> implements LongDoubleSpliterator {
+		private final LongDoubleToDoubleFunction mapper;
+
+		MapRight(LongDoubleSpliterator source, LongDoubleToDoubleFunction mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			return source.tryAdvance((left, right) -> action.accept(left, mapper.applyAsDouble(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			source.forEachRemaining((left, right) -> action.accept(left, mapper.applyAsDouble(left, right)));
+		}
+
+		@Override
+		LongDoubleSpliterator wrap(LongDoubleSpliterator prefix) {
+			return new MapRight(prefix, mapper);
+		}
+	}
+
+	private static final class Unboxing<L, R>
+			extends SpliteratorStage<BiSpliterator<L, R>, LongDoubleSpliterator> implements LongDoubleSpliterator {
+		private final ToLongBiFunction<? super L, ? super R> leftMapper;
+		private final ToDoubleBiFunction<? super L, ? super R> rightMapper;
+
+		Unboxing(BiSpliterator<L, R> source, ToLongBiFunction<? super L, ? super R> leftMapper,
+		         ToDoubleBiFunction<? super L, ? super R> rightMapper) {
+			super(source);
+			this.leftMapper = leftMapper;
+			this.rightMapper = rightMapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			return source.tryAdvance((left, right) ->
+					action.accept(leftMapper.applyAsLong(left, right), rightMapper.applyAsDouble(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			source.forEachRemaining((left, right) ->
+					action.accept(leftMapper.applyAsLong(left, right), rightMapper.applyAsDouble(left, right)));
+		}
+
+		@Override
+		LongDoubleSpliterator wrap(BiSpliterator<L, R> prefix) {
+			return new Unboxing<>(prefix, leftMapper, rightMapper);
+		}
+	}
+
+	private static final class Boxing
+			extends SpliteratorStage<LongDoubleSpliterator, BiSpliterator<Long, Double>> implements BiSpliterator<Long, Double> {
+
+		Boxing(LongDoubleSpliterator source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super Long, ? super Double> action) {
+			return source.tryAdvance(action::accept);
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super Long, ? super Double> action) {
+			source.forEachRemaining(action::accept);
+		}
+
+		@Override
+		BiSpliterator<Long, Double> wrap(LongDoubleSpliterator prefix) {
+			return new Boxing(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package ua.kurinnyi.utils.stream;
+
+interface LongDoubleChunkSpliterator extends BaseSpliterator<LongDoubleChunkSpliterator> {
+
+	// The chunk belongs to the caller until the next call, which may reuse its arrays.
+	Chunk next();
+
+
+	final class Chunk {
+		long[] lefts;
+		double[] rights;
+		int size;
+
+		Chunk(long[] lefts, double[] rights) {
+			this.lefts = lefts;
+			this.rights = rights;
+		}
+	}
+}
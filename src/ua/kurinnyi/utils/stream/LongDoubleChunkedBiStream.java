@@ -0,0 +1,283 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.stream.LongDoubleChunkSpliterator.Chunk;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class LongDoubleChunkedBiStream {
+
+	private LongDoubleChunkSpliterator spliterator;
+	private boolean parallel;
+	private final int chunkSize;
+	private final CloseHandlers closeHandlers;
+
+	LongDoubleChunkedBiStream(LongDoubleChunkSpliterator spliterator, boolean parallel, int chunkSize,
+	                          CloseHandlers closeHandlers) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
+		this.chunkSize = chunkSize;
+		this.closeHandlers = closeHandlers;
+	}
+
+	static LongDoubleChunkSpliterator chunking(LongDoubleSpliterator source, int chunkSize) {
+		return new Source(source, chunkSize);
+	}
+
+
+	public LongDoubleChunkedBiStream parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public LongDoubleChunkedBiStream sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public LongDoubleChunkedBiStream filterBatch(LongDoubleBatchPredicate predicate) {
+		return next(new FilterBatch(consume(), predicate, chunkSize));
+	}
+
+	public LongDoubleChunkedBiStream filter(LongDoublePredicate predicate) {
+		return filterBatch((lefts, rights, size, matches) -> {
+			for (int i = 0; i < size; i++)
+				matches[i] = predicate.test(lefts[i], rights[i]);
+		});
+	}
+
+	public LongDoubleChunkedBiStream mapRightBatch(LongDoubleBatchFunction mapper) {
+		return next(new MapRightBatch(consume(), mapper, chunkSize));
+	}
+
+	public LongDoubleChunkedBiStream mapRight(LongDoubleToDoubleFunction mapper) {
+		return mapRightBatch((lefts, rights, size, results) -> {
+			for (int i = 0; i < size; i++)
+				results[i] = mapper.applyAsDouble(lefts[i], rights[i]);
+		});
+	}
+
+	public LongDoubleBiStream unchunked() {
+		return new LongDoubleBiStream(new Unchunking(consume()), parallel, closeHandlers);
+	}
+
+	public void forEachBatch(LongDoubleBatchConsumer sink) {
+		LongDoubleChunkSpliterator source = consume();
+		try {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					forEachBatch(leaf, sink);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				forEachBatch(source, sink);
+		} finally {
+			if (closeHandlers != null)
+				closeHandlers.run();
+		}
+	}
+
+	public void forEach(LongDoubleConsumer action) {
+		forEachBatch((lefts, rights, size) -> {
+			for (int i = 0; i < size; i++)
+				action.accept(lefts[i], rights[i]);
+		});
+	}
+
+
+	private static void forEachBatch(LongDoubleChunkSpliterator source, LongDoubleBatchConsumer sink) {
+		Chunk chunk;
+		while ((chunk = source.next()) != null)
+			sink.accept(chunk.lefts, chunk.rights, chunk.size);
+	}
+
+	private LongDoubleChunkedBiStream next(LongDoubleChunkSpliterator stage) {
+		return new LongDoubleChunkedBiStream(stage, parallel, chunkSize, closeHandlers);
+	}
+
+	private LongDoubleChunkSpliterator consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("LongDoubleChunkedBiStream has already been operated upon.");
+		LongDoubleChunkSpliterator current = spliterator;
+		spliterator = null;
+		return current;
+	}
+
+
+	private static final class Source implements LongDoubleChunkSpliterator {
+		private final LongDoubleSpliterator source;
+		private final Chunk chunk;
+		private final LongDoubleConsumer append;
+
+		Source(LongDoubleSpliterator source, int chunkSize) {
+			this.source = source;
+			this.chunk = new Chunk(new long[chunkSize], new double[chunkSize]);
+			this.append = (left, right) -> {
+				chunk.lefts[chunk.size] = left;
+				chunk.rights[chunk.size++] = right;
+			};
+		}
+
+		@Override
+		public Chunk next() {
+			chunk.size = 0;
+			while (chunk.size < chunk.lefts.length && source.tryAdvance(append));
+			return chunk.size == 0 ? null : chunk;
+		}
+
+		@Override
+		public LongDoubleChunkSpliterator trySplit() {
+			LongDoubleSpliterator prefix = source.trySplit();
+			return prefix == null ? null : new Source(prefix, chunk.lefts.length);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+
+	private static final class FilterBatch
+			extends SpliteratorStage<LongDoubleChunkSpliterator, LongDoubleChunkSpliterator>
+			implements LongDoubleChunkSpliterator {
+		private final LongDoubleBatchPredicate predicate;
+		private final boolean[] matches;
+
+		FilterBatch(LongDoubleChunkSpliterator source, LongDoubleBatchPredicate predicate, int chunkSize) {
+			super(source);
+			this.predicate = predicate;
+			this.matches = new boolean[chunkSize];
+		}
+
+		@Override
+		public Chunk next() {
+			Chunk chunk;
+			while ((chunk = source.next()) != null) {
+				predicate.test(chunk.lefts, chunk.rights, chunk.size, matches);
+				int kept = 0;
+				for (int i = 0; i < chunk.size; i++) {
+					if (matches[i]) {
+						chunk.lefts[kept] = chunk.lefts[i];
+						chunk.rights[kept++] = chunk.rights[i];
+					}
+				}
+				if (kept > 0) {
+					chunk.size = kept;
+					return chunk;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		LongDoubleChunkSpliterator wrap(LongDoubleChunkSpliterator prefix) {
+			return new FilterBatch(prefix, predicate, matches.length);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class MapRightBatch
+			extends SpliteratorStage<LongDoubleChunkSpliterator, LongDoubleChunkSpliterator>
+			implements LongDoubleChunkSpliterator {
+		private final LongDoubleBatchFunction mapper;
+		private final Chunk mapped;
+
+		MapRightBatch(LongDoubleChunkSpliterator source, LongDoubleBatchFunction mapper, int chunkSize) {
+			super(source);
+			this.mapper = mapper;
+			this.mapped = new Chunk(null, new double[chunkSize]);
+		}
+
+		@Override
+		public Chunk next() {
+			Chunk chunk = source.next();
+			if (chunk == null)
+				return null;
+			mapper.apply(chunk.lefts, chunk.rights, chunk.size, mapped.rights);
+			mapped.lefts = chunk.lefts;
+			mapped.size = chunk.size;
+			return mapped;
+		}
+
+		@Override
+		LongDoubleChunkSpliterator wrap(LongDoubleChunkSpliterator prefix) {
+			return new MapRightBatch(prefix, mapper, mapped.rights.length);
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics();
+			return (characteristics & DISTINCT_LEFTS) != 0 ? characteristics : characteristics & ~DISTINCT;
+		}
+	}
+
+	private static final class Unchunking extends SpliteratorStage<LongDoubleChunkSpliterator, LongDoubleSpliterator>
+			implements LongDoubleSpliterator {
+		private Chunk chunk;
+		private int index;
+
+		Unchunking(LongDoubleChunkSpliterator source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(LongDoubleConsumer action) {
+			if (chunk == null || index == chunk.size) {
+				chunk = source.next();
+				index = 0;
+				if (chunk == null)
+					return false;
+			}
+			int current = index++;
+			action.accept(chunk.lefts[current], chunk.rights[current]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongDoubleConsumer action) {
+			while (chunk != null && index < chunk.size) {
+				int current = index++;
+				action.accept(chunk.lefts[current], chunk.rights[current]);
+			}
+			LongDoubleChunkedBiStream.forEachBatch(source, (lefts, rights, size) -> {
+				for (int i = 0; i < size; i++)
+					action.accept(lefts[i], rights[i]);
+			});
+			chunk = null;
+		}
+
+		@Override
+		public LongDoubleSpliterator trySplit() {
+			return chunk != null && index < chunk.size ? null : super.trySplit();
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize() + (chunk == null ? 0 : chunk.size - index);
+		}
+
+		@Override
+		LongDoubleSpliterator wrap(LongDoubleChunkSpliterator prefix) {
+			return new Unchunking(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleConsumer {
+	void accept(long left, double right);
+}
@@ -0,0 +1,65 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.stream.LongObjIndex.LongKeys;
+
+import java.util.Arrays;
+
+public final class LongDoubleIndex {
+
+	private final long[] keys;
+	private final int[] starts;
+	private final double[] values;
+	private final int[] slots;
+
+	private LongDoubleIndex(long[] keys, int[] starts, double[] values, int[] slots) {
+		this.keys = keys;
+		this.starts = starts;
+		this.values = values;
+		this.slots = slots;
+	}
+
+	static LongDoubleIndex of(PairBuffer<Long, Double> pairs) {
+		LongKeys keys = new LongKeys();
+		int[] ordinals = new int[pairs.size()];
+		for (int i = 0; i < ordinals.length; i++)
+			ordinals[i] = keys.ordinal(pairs.lefts().getLong(i));
+		int[] starts = IndexTable.starts(ordinals, keys.count);
+		int[] positions = IndexTable.positions(ordinals, starts);
+		double[] values = new double[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++)
+			values[positions[i]] = pairs.rights().getDouble(i);
+		return new LongDoubleIndex(Arrays.copyOf(keys.keys, keys.count), starts, values, keys.slots);
+	}
+
+	public double[] get(long key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? new double[0] : Arrays.copyOfRange(values, starts[ordinal], starts[ordinal + 1]);
+	}
+
+	public double getFirst(long key, double defaultValue) {
+		int ordinal = find(key);
+		return ordinal < 0 ? defaultValue : values[starts[ordinal]];
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	public int keyCount() {
+		return keys.length;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public void forEach(LongDoubleConsumer action) {
+		for (int ordinal = 0; ordinal < keys.length; ordinal++)
+			for (int i = starts[ordinal]; i < starts[ordinal + 1]; i++)
+				action.accept(keys[ordinal], values[i]);
+	}
+
+	private int find(long key) {
+		return LongKeys.find(key, keys, slots);
+	}
+}
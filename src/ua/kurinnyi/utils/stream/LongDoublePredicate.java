@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoublePredicate {
+	boolean test(long left, double right);
+}
@@ -0,0 +1,10 @@
+package ua.kurinnyi.utils.stream;
+
+interface LongDoubleSpliterator extends BaseSpliterator<LongDoubleSpliterator> {
+
+	boolean tryAdvance(LongDoubleConsumer action);
+
+	default void forEachRemaining(LongDoubleConsumer action) {
+		while (tryAdvance(action));
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleToDoubleFunction {
+	double applyAsDouble(long left, double right);
+}
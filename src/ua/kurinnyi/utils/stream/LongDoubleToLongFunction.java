@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface LongDoubleToLongFunction {
+	long applyAsLong(long left, double right);
+}
@@ -0,0 +1,374 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.LongObjConsumer;
+import ua.kurinnyi.utils.tuple.LongObjFunction;
+import ua.kurinnyi.utils.tuple.LongObjPredicate;
+import ua.kurinnyi.utils.tuple.LongObjToLongFunction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.*;
+import java.util.stream.LongStream;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class LongObjBiStream<R> {
+
+	private LongObjSpliterator<R> spliterator;
+	private boolean parallel;
+	private final CloseHandlers closeHandlers;
+
+	LongObjBiStream(LongObjSpliterator<R> spliterator, boolean parallel, CloseHandlers closeHandlers) {
+		this.spliterator = spliterator;
+		this.parallel = parallel;
+		this.closeHandlers = closeHandlers;
+	}
+
+	public static <R> LongObjBiStream<R> map(LongStream stream, LongFunction<? extends R> mapper) {
+		return new LongObjBiStream<>(new Source<>(stream.spliterator(), mapper), stream.isParallel(),
+				CloseHandlers.of(stream::close));
+	}
+
+	static <R> LongObjSpliterator<R> indexed(Spliterator<? extends R> source) {
+		return new Indexed<>(source, 0);
+	}
+
+	static <L, R> LongObjSpliterator<R> fromBiSpliterator(BiSpliterator<L, R> source,
+	                                                      ToLongBiFunction<? super L, ? super R> leftMapper) {
+		return new Unboxing<>(source, leftMapper);
+	}
+
+
+	public LongObjBiStream<R> parallel() {
+		parallel = true;
+		return this;
+	}
+
+	public LongObjBiStream<R> sequential() {
+		parallel = false;
+		return this;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+
+	public LongObjBiStream<R> filter(LongObjPredicate<? super R> predicate) {
+		return next(new Filter<>(consume(), predicate));
+	}
+
+	public LongObjBiStream<R> mapLeft(LongObjToLongFunction<? super R> mapper) {
+		return next(new MapLeft<>(consume(), mapper));
+	}
+
+	public <M> LongObjBiStream<M> mapRight(LongObjFunction<? super R, ? extends M> mapper) {
+		return next(new MapRight<>(consume(), mapper));
+	}
+
+	public BiStream<R, Long> swap() {
+		return boxed().swap();
+	}
+
+	public BiStream<Long, R> boxed() {
+		return new BiStream<>(new Boxing<>(consume()), parallel).closingWith(closeHandlers);
+	}
+
+	public PairBuffer<Long, R> toColumns() {
+		return terminal(source -> PairBuffer.collect(source, parallel, expectedSize -> new PairBuffer<>(
+						new Column.Longs(Column.initialCapacity(expectedSize)),
+						new Column.Objects(Column.initialCapacity(expectedSize)), 0),
+				(leaf, buffer) -> leaf.forEachRemaining((left, right) -> {
+					((Column.Longs) buffer.lefts()).addLong(left);
+					((Column.Objects) buffer.rights()).add(right);
+				})));
+	}
+
+	public LongObjIndex<R> toIndex() {
+		return LongObjIndex.of(toColumns());
+	}
+
+	public void forEach(LongObjConsumer<? super R> action) {
+		terminal(source -> {
+			if (parallel)
+				BiStreamTask.invoke(source, leaf -> {
+					leaf.forEachRemaining(action);
+					return null;
+				}, (ignored, alsoIgnored) -> null);
+			else
+				source.forEachRemaining(action);
+			return null;
+		});
+	}
+
+	public Map<Long, R> toMap() {
+		return toMap((value, newValue) -> newValue);
+	}
+
+	public Map<Long, R> toMap(BinaryOperator<R> mergeFunction) {
+		return terminal(source -> {
+			if (!parallel)
+				return toMap(source, mergeFunction);
+			return BiStreamTask.invoke(source, leaf -> toMap(leaf, mergeFunction), (result, other) -> {
+				other.forEach((left, right) -> result.merge(left, right, mergeFunction));
+				return result;
+			});
+		});
+	}
+
+
+	private static <R> Map<Long, R> toMap(LongObjSpliterator<R> source, BinaryOperator<R> mergeFunction) {
+		Map<Long, R> result = new HashMap<>();
+		source.forEachRemaining((left, right) -> result.merge(left, right, mergeFunction));
+		return result;
+	}
+
+	private <M> LongObjBiStream<M> next(LongObjSpliterator<M> stage) {
+		return new LongObjBiStream<>(stage, parallel, closeHandlers);
+	}
+
+	private <T> T terminal(Function<LongObjSpliterator<R>, T> body) {
+		LongObjSpliterator<R> source = consume();
+		try {
+			return body.apply(source);
+		} finally {
+			if (closeHandlers != null)
+				closeHandlers.run();
+		}
+	}
+
+	private LongObjSpliterator<R> consume() {
+		if (spliterator == null)
+			throw new IllegalStateException("LongObjBiStream has already been operated upon.");
+		LongObjSpliterator<R> current = spliterator;
+		spliterator = null;
+		return current;
+	}
+
+
+	private static final class Source<R> implements LongObjSpliterator<R> {
+		private final Spliterator.OfLong source;
+		private final LongFunction<? extends R> mapper;
+
+		Source(Spliterator.OfLong source, LongFunction<? extends R> mapper) {
+			this.source = source;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super R> action) {
+			return source.tryAdvance((long value) -> action.accept(value, mapper.apply(value)));
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super R> action) {
+			source.forEachRemaining((long value) -> action.accept(value, mapper.apply(value)));
+		}
+
+		@Override
+		public LongObjSpliterator<R> trySplit() {
+			Spliterator.OfLong prefix = source.trySplit();
+			return prefix == null ? null : new Source<>(prefix, mapper);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = source.characteristics() & (ORDERED | SIZED | SUBSIZED | DISTINCT);
+			return (characteristics & DISTINCT) != 0 ? characteristics | DISTINCT_LEFTS : characteristics;
+		}
+	}
+
+	private static final class Indexed<R> implements LongObjSpliterator<R> {
+		private final Spliterator<? extends R> source;
+		private long index;
+
+		Indexed(Spliterator<? extends R> source, long index) {
+			this.source = source;
+			this.index = index;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super R> action) {
+			return source.tryAdvance(value -> action.accept(index++, value));
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super R> action) {
+			source.forEachRemaining(value -> action.accept(index++, value));
+		}
+
+		@Override
+		public LongObjSpliterator<R> trySplit() {
+			if (!source.hasCharacteristics(SUBSIZED))
+				return null;
+			Spliterator<? extends R> prefix = source.trySplit();
+			if (prefix == null)
+				return null;
+			LongObjSpliterator<R> indexedPrefix = new Indexed<>(prefix, index);
+			index += prefix.getExactSizeIfKnown();
+			return indexedPrefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & (ORDERED | SIZED | SUBSIZED) | DISTINCT | DISTINCT_LEFTS;
+		}
+	}
+
+	private static final class Filter<R>
+			extends SpliteratorStage<LongObjSpliterator<R>, LongObjSpliterator<R>> implements LongObjSpliterator<R> {
+		private final LongObjPredicate<? super R> predicate;
+		private boolean matched;
+
+		Filter(LongObjSpliterator<R> source, LongObjPredicate<? super R> predicate) {
+			super(source);
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super R> action) {
+			LongObjConsumer<R> sink = (left, right) -> {
+				if (predicate.test(left, right)) {
+					matched = true;
+					action.accept(left, right);
+				}
+			};
+			matched = false;
+			while (!matched && source.tryAdvance(sink));
+			return matched;
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super R> action) {
+			source.forEachRemaining((left, right) -> {
+				if (predicate.test(left, right))
+					action.accept(left, right);
+			});
+		}
+
+		@Override
+		LongObjSpliterator<R> wrap(LongObjSpliterator<R> prefix) {
+			return new Filter<>(prefix, predicate);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+	}
+
+	private static final class MapLeft<R>
+			extends SpliteratorStage<LongObjSpliterator<R>, LongObjSpliterator<R>> implements LongObjSpliterator<R> {
+		private final LongObjToLongFunction<? super R> mapper;
+
+		MapLeft(LongObjSpliterator<R> source, LongObjToLongFunction<? super R> mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super R> action) {
+			return source.tryAdvance((left, right) -> action.accept(mapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super R> action) {
+			source.forEachRemaining((left, right) -> action.accept(mapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		LongObjSpliterator<R> wrap(LongObjSpliterator<R> prefix) {
+			return new MapLeft<>(prefix, mapper);
+		}
+	}
+
+	private static final class MapRight<R, M>
+			extends SpliteratorStage<LongObjSpliterator<R>, LongObjSpliterator<M>> implements LongObjSpliterator<M> {
+		private final LongObjFunction<? super R, ? extends M> mapper;
+
+		MapRight(LongObjSpliterator<R> source, LongObjFunction<? super R, ? extends M> mapper) {
+			super(source);
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super M> action) {
+			return source.tryAdvance((left, right) -> action.accept(left, mapper.apply(left, right)));
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super M> action) {
+			source.forEachRemaining((left, right) -> action.accept(left, mapper.apply(left, right)));
+		}
+
+		@Override
+		LongObjSpliterator<M> wrap(LongObjSpliterator<R> prefix) {
+			return new MapRight<>(prefix, mapper);
+		}
+	}
+
+	private static final class Unboxing<L, R>
+			extends SpliteratorStage<BiSpliterator<L, R>, LongObjSpliterator<R>> implements LongObjSpliterator<R> {
+		private final ToLongBiFunction<? super L, ? super R> leftMapper;
+
+		Unboxing(BiSpliterator<L, R> source, ToLongBiFunction<? super L, ? super R> leftMapper) {
+			super(source);
+			this.leftMapper = leftMapper;
+		}
+
+		@Override
+		public boolean tryAdvance(LongObjConsumer<? super R> action) {
+			return source.tryAdvance((left, right) -> action.accept(leftMapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		public void forEachRemaining(LongObjConsumer<? super R> action) {
+			source.forEachRemaining((left, right) -> action.accept(leftMapper.applyAsLong(left, right), right));
+		}
+
+		@Override
+		LongObjSpliterator<R> wrap(BiSpliterator<L, R> prefix) {
+			return new Unboxing<>(prefix, leftMapper);
+		}
+	}
+
+	private static final class Boxing<R>
+			extends SpliteratorStage<LongObjSpliterator<R>, BiSpliterator<Long, R>> implements BiSpliterator<Long, R> {
+
+		Boxing(LongObjSpliterator<R> source) {
+			super(source);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super Long, ? super R> action) {
+			return source.tryAdvance(action::accept);
+		}
+
+		@Override
+		public void forEachRemaining(BiConsumer<? super Long, ? super R> action) {
+			source.forEachRemaining(action::accept);
+		}
+
+		@Override
+		BiSpliterator<Long, R> wrap(LongObjSpliterator<R> prefix) {
+			return new Boxing<>(prefix);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.LongObjConsumer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class LongObjIndex<R> {
+
+	private final long[] keys;
+	private final int[] starts;
+	private final Object[] values;
+	private final int[] slots;
+
+	private LongObjIndex(long[] keys, int[] starts, Object[] values, int[] slots) {
+		this.keys = keys;
+		this.starts = starts;
+		this.values = values;
+		this.slots = slots;
+	}
+
+	static <R> LongObjIndex<R> of(PairBuffer<Long, R> pairs) {
+		LongKeys keys = new LongKeys();
+		int[] ordinals = new int[pairs.size()];
+		for (int i = 0; i < ordinals.length; i++)
+			ordinals[i] = keys.ordinal(pairs.lefts().getLong(i));
+		int[] starts = IndexTable.starts(ordinals, keys.count);
+		int[] positions = IndexTable.positions(ordinals, starts);
+		Object[] values = new Object[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++)
+			values[positions[i]] = pairs.rights().get(i);
+		return new LongObjIndex<>(Arrays.copyOf(keys.keys, keys.count), starts, values, keys.slots);
+	}
+
+	public List<R> get(long key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? Collections.emptyList() : new IndexTable.Values<>(values, starts[ordinal], starts[ordinal + 1]);
+	}
+
+	@SuppressWarnings("unchecked")
+	public R getFirst(long key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? null : (R) values[starts[ordinal]];
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	public int keyCount() {
+		return keys.length;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(LongObjConsumer<? super R> action) {
+		for (int ordinal = 0; ordinal < keys.length; ordinal++)
+			for (int i = starts[ordinal]; i < starts[ordinal + 1]; i++)
+				action.accept(keys[ordinal], (R) values[i]);
+	}
+
+	private int find(long key) {
+		return LongKeys.find(key, keys, slots);
+	}
+
+
+	static final class LongKeys {
+		long[] keys = new long[IndexTable.INITIAL_KEYS];
+		int[] slots = new int[IndexTable.INITIAL_KEYS * 2];
+		int count;
+
+		static int find(long key, long[] keys, int[] slots) {
+			int mask = slots.length - 1;
+			for (int index = IndexTable.hash(key) & mask; slots[index] != 0; index = (index + 1) & mask)
+				if (keys[slots[index] - 1] == key)
+					return slots[index] - 1;
+			return -1;
+		}
+
+		int ordinal(long key) {
+			int mask = slots.length - 1;
+			int index = IndexTable.hash(key) & mask;
+			while (slots[index] != 0) {
+				if (keys[slots[index] - 1] == key)
+					return slots[index] - 1;
+				index = (index + 1) & mask;
+			}
+			if (count == keys.length)
+				keys = Arrays.copyOf(keys, count * 2);
+			keys[count] = key;
+			slots[index] = ++count;
+			if (IndexTable.isFull(count, slots))
+				slots = IndexTable.slots(count, slots.length * 2, ordinal -> IndexTable.hash(keys[ordinal]));
+			return count - 1;
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.LongObjConsumer;
+
+interface LongObjSpliterator<R> extends BaseSpliterator<LongObjSpliterator<R>> {
+
+	boolean tryAdvance(LongObjConsumer<? super R> action);
+
+	default void forEachRemaining(LongObjConsumer<? super R> action) {
+		while (tryAdvance(action));
+	}
+}
@@ -0,0 +1,271 @@
+package ua.kurinnyi.utils.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Spliterator.*;
+
+final class MappedPairFile {
+
+	private static final int MAGIC = 0x42695346;
+	private static final int CHECKPOINT_INTERVAL = 4096;
+	private static final int WRITE_WINDOW = 8 << 20;
+	private static final long READ_WINDOW = 1L << 30;
+	private static final int NULL_LENGTH = -1;
+
+	private final long[] checkpoints;
+	private final long recordCount;
+	private final MappedByteBuffer[] windows;
+	private final long[] windowStarts;
+	private final int[] checkpointWindows;
+
+	private MappedPairFile(long[] checkpoints, long recordCount, MappedByteBuffer[] windows, long[] windowStarts,
+	                       int[] checkpointWindows) {
+		this.checkpoints = checkpoints;
+		this.recordCount = recordCount;
+		this.windows = windows;
+		this.windowStarts = windowStarts;
+		this.checkpointWindows = checkpointWindows;
+	}
+
+	static <L, R> long write(Path path, PairCodec<L, R> codec, BiSpliterator<L, R> source) {
+		try (FileChannel channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			Writer<L, R> writer = new Writer<>(channel, codec);
+			source.forEachRemaining(writer);
+			writer.finish();
+			return writer.count;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static <L, R> BiSpliterator<L, R> read(Path path, PairCodec<L, R> codec) {
+		try (FileChannel channel = FileChannel.open(path, READ)) {
+			return open(channel).new Region<>(codec);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static MappedPairFile open(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		ByteBuffer trailer = readFully(channel, fileSize - 24, 24);
+		long recordsEnd = trailer.getLong();
+		long recordCount = trailer.getLong();
+		int checkpointCount = trailer.getInt();
+		if (trailer.getInt() != MAGIC)
+			throw new IOException("File is not a BiStream pair file.");
+		ByteBuffer index = readFully(channel, recordsEnd, checkpointCount * Long.BYTES);
+		long[] checkpoints = new long[checkpointCount + 1];
+		for (int i = 0; i < checkpointCount; i++)
+			checkpoints[i] = index.getLong();
+		checkpoints[checkpointCount] = recordsEnd;
+
+		List<MappedByteBuffer> windows = new ArrayList<>();
+		List<Long> windowStarts = new ArrayList<>();
+		int[] checkpointWindows = new int[checkpointCount];
+		int first = 0;
+		while (first < checkpointCount) {
+			int last = first + 1;
+			while (last < checkpointCount && checkpoints[last + 1] - checkpoints[first] <= READ_WINDOW)
+				last++;
+			long length = checkpoints[last] - checkpoints[first];
+			if (length > Integer.MAX_VALUE)
+				throw new IOException("Records between two checkpoints don't fit into one mapped region.");
+			windows.add(channel.map(READ_ONLY, checkpoints[first], length));
+			windowStarts.add(checkpoints[first]);
+			for (int i = first; i < last; i++)
+				checkpointWindows[i] = windows.size() - 1;
+			first = last;
+		}
+		return new MappedPairFile(checkpoints, recordCount, windows.toArray(new MappedByteBuffer[0]),
+				windowStarts.stream().mapToLong(Long::longValue).toArray(), checkpointWindows);
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		if (position < 0)
+			throw new IOException("File is too short to be a BiStream pair file.");
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Unexpected end of BiStream pair file.");
+		buffer.flip();
+		return buffer;
+	}
+
+	private long recordsIn(int fromCheckpoint, int toCheckpoint) {
+		long before = (long) fromCheckpoint * CHECKPOINT_INTERVAL;
+		return Math.min(recordCount, (long) toCheckpoint * CHECKPOINT_INTERVAL) - before;
+	}
+
+
+	private final class Region<L, R> implements BiSpliterator<L, R> {
+		private final ValueCodec<L> leftCodec;
+		private final ValueCodec<R> rightCodec;
+		private int checkpoint;
+		private final int fence;
+		private ByteBuffer current;
+		private int currentWindow = -1;
+		private int currentEnd;
+		private long remaining;
+
+		Region(PairCodec<L, R> codec) {
+			this(codec.getLeftCodec(), codec.getRightCodec(), 0, checkpointWindows.length);
+		}
+
+		private Region(ValueCodec<L> leftCodec, ValueCodec<R> rightCodec, int checkpoint, int fence) {
+			this.leftCodec = leftCodec;
+			this.rightCodec = rightCodec;
+			this.checkpoint = checkpoint;
+			this.fence = fence;
+			this.remaining = recordsIn(checkpoint, fence);
+		}
+
+		@Override
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			while (current == null || current.position() >= currentEnd) {
+				if (checkpoint >= fence)
+					return false;
+				enter(checkpoint++);
+			}
+			L left = decode(current, leftCodec);
+			R right = decode(current, rightCodec);
+			remaining--;
+			action.accept(left, right);
+			return true;
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			if (current != null && current.position() < currentEnd)
+				return null;
+			int middle = (checkpoint + fence) >>> 1;
+			if (middle <= checkpoint)
+				return null;
+			Region<L, R> prefix = new Region<>(leftCodec, rightCodec, checkpoint, middle);
+			checkpoint = middle;
+			remaining = recordsIn(checkpoint, fence);
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+		}
+
+		private void enter(int target) {
+			int window = checkpointWindows[target];
+			if (window != currentWindow) {
+				current = windows[window].duplicate();
+				currentWindow = window;
+			}
+			current.limit(current.capacity());
+			current.position((int) (checkpoints[target] - windowStarts[window]));
+			currentEnd = (int) (checkpoints[target + 1] - windowStarts[window]);
+		}
+
+		private <T> T decode(ByteBuffer buffer, ValueCodec<T> codec) {
+			int length = buffer.getInt();
+			if (length == NULL_LENGTH)
+				return null;
+			int end = buffer.position() + length;
+			buffer.limit(end);
+			T value = codec.decode(buffer);
+			buffer.limit(buffer.capacity());
+			buffer.position(end);
+			return value;
+		}
+	}
+
+	// Records are staged in a heap window and every full window is copied into a mapping of exactly its size, so the
+	// file never grows past its data and is never truncated under a live mapping.
+	private static final class Writer<L, R> implements BiConsumer<L, R> {
+		private final FileChannel channel;
+		private final ValueCodec<L> leftCodec;
+		private final ValueCodec<R> rightCodec;
+		private final List<Long> checkpoints = new ArrayList<>();
+		private ByteBuffer window = ByteBuffer.allocate(WRITE_WINDOW);
+		private long windowStart;
+		private long count;
+
+		Writer(FileChannel channel, PairCodec<L, R> codec) {
+			this.channel = channel;
+			this.leftCodec = codec.getLeftCodec();
+			this.rightCodec = codec.getRightCodec();
+		}
+
+		@Override
+		public void accept(L left, R right) {
+			int leftSize = left == null ? 0 : leftCodec.sizeOf(left);
+			int rightSize = right == null ? 0 : rightCodec.sizeOf(right);
+			ensureRoom(2 * Integer.BYTES + leftSize + rightSize);
+			if (count % CHECKPOINT_INTERVAL == 0)
+				checkpoints.add(windowStart + window.position());
+			encode(left, leftSize, leftCodec);
+			encode(right, rightSize, rightCodec);
+			count++;
+		}
+
+		void finish() throws IOException {
+			flush();
+			long recordsEnd = windowStart;
+			ByteBuffer footer = ByteBuffer.allocate(checkpoints.size() * Long.BYTES + 24);
+			for (long checkpoint : checkpoints)
+				footer.putLong(checkpoint);
+			footer.putLong(recordsEnd).putLong(count).putInt(checkpoints.size()).putInt(MAGIC);
+			footer.flip();
+			while (footer.hasRemaining())
+				channel.write(footer, recordsEnd + footer.position());
+			channel.force(false);
+		}
+
+		private <T> void encode(T value, int size, ValueCodec<T> codec) {
+			if (value == null) {
+				window.putInt(NULL_LENGTH);
+				return;
+			}
+			window.putInt(size);
+			int expectedEnd = window.position() + size;
+			codec.encode(value, window);
+			if (window.position() != expectedEnd)
+				throw new IllegalStateException("Codec wrote a different number of bytes than it reported.");
+		}
+
+		private void ensureRoom(int recordSize) {
+			if (window.remaining() >= recordSize)
+				return;
+			try {
+				flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (window.capacity() < recordSize)
+				window = ByteBuffer.allocate(recordSize);
+		}
+
+		private void flush() throws IOException {
+			window.flip();
+			if (window.hasRemaining()) {
+				MappedByteBuffer mapped = channel.map(READ_WRITE, windowStart, window.remaining());
+				mapped.put(window);
+				windowStart += mapped.position();
+			}
+			window.clear();
+		}
+	}
+}
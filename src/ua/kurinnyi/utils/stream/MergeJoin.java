@@ -0,0 +1,139 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import static java.util.Spliterator.ORDERED;
+
+final class MergeJoin<L, R, V, M> implements BiSpliterator<L, M> {
+
+	private final BiSpliterator<L, R> source;
+	private final BiSpliterator<? extends L, ? extends V> other;
+	private final Comparator<? super L> comparator;
+	private final BiFunction<? super R, ? super V, ? extends M> combiner;
+	private final BiConsumer<L, V> lookahead;
+
+	private boolean otherStarted;
+	private boolean otherHasNext;
+	private L otherKey;
+	private V otherValue;
+
+	private boolean hasGroup;
+	private L groupKey;
+	private final List<V> group = new ArrayList<>();
+
+	private boolean pending;
+	private L pendingKey;
+	private R pendingRight;
+	private int pendingIndex;
+	private boolean emitted;
+
+	MergeJoin(BiSpliterator<L, R> source, BiSpliterator<? extends L, ? extends V> other,
+	          Comparator<? super L> comparator, BiFunction<? super R, ? super V, ? extends M> combiner) {
+		this.source = source;
+		this.other = other;
+		this.comparator = comparator;
+		this.combiner = combiner;
+		this.lookahead = (key, value) -> {
+			otherKey = key;
+			otherValue = value;
+		};
+	}
+
+	@Override
+	public boolean tryAdvance(BiConsumer<? super L, ? super M> action) {
+		if (pending) {
+			action.accept(pendingKey, combiner.apply(pendingRight, group.get(pendingIndex++)));
+			if (pendingIndex == group.size())
+				clearPending();
+			return true;
+		}
+		BiConsumer<L, R> probe = (left, right) -> {
+			List<V> matches = matchesFor(left);
+			if (matches.isEmpty())
+				return;
+			emitted = true;
+			if (matches.size() > 1) {
+				pending = true;
+				pendingKey = left;
+				pendingRight = right;
+				pendingIndex = 1;
+			}
+			action.accept(left, combiner.apply(right, matches.get(0)));
+		};
+		emitted = false;
+		while (!emitted && source.tryAdvance(probe));
+		return emitted;
+	}
+
+	@Override
+	public void forEachRemaining(BiConsumer<? super L, ? super M> action) {
+		while (pending)
+			tryAdvance(action);
+		source.forEachRemaining((left, right) -> {
+			for (V match : matchesFor(left))
+				action.accept(left, combiner.apply(right, match));
+		});
+	}
+
+	// Both inputs are walked in lockstep, so the join can't be split.
+	@Override
+	public BiSpliterator<L, M> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & ORDERED;
+	}
+
+	private List<V> matchesFor(L key) {
+		if (hasGroup) {
+			int comparison = comparator.compare(groupKey, key);
+			if (comparison == 0)
+				return group;
+			if (comparison > 0)
+				return Collections.emptyList();
+			hasGroup = false;
+			group.clear();
+		}
+		if (!otherStarted) {
+			otherStarted = true;
+			advanceOther();
+		}
+		while (otherHasNext && comparator.compare(otherKey, key) < 0)
+			advanceOther();
+		if (!otherHasNext || comparator.compare(otherKey, key) > 0)
+			return Collections.emptyList();
+		hasGroup = true;
+		groupKey = otherKey;
+		while (otherHasNext && comparator.compare(otherKey, groupKey) == 0) {
+			group.add(otherValue);
+			advanceOther();
+		}
+		return group;
+	}
+
+	private void advanceOther() {
+		otherHasNext = other.tryAdvance(lookahead);
+		if (!otherHasNext) {
+			otherKey = null;
+			otherValue = null;
+		}
+	}
+
+	private void clearPending() {
+		pending = false;
+		pendingKey = null;
+		pendingRight = null;
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.stream;
+
+@FunctionalInterface
+public interface MetricsSink {
+	void record(StageMetrics metrics);
+}
@@ -0,0 +1,32 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.List;
+
+public interface Page<T> {
+
+	List<T> getItems();
+
+	boolean isLast();
+
+	static <T> Page<T> of(List<T> items) {
+		return of(items, false);
+	}
+
+	static <T> Page<T> last(List<T> items) {
+		return of(items, true);
+	}
+
+	static <T> Page<T> of(List<T> items, boolean last) {
+		return new Page<T>() {
+			@Override
+			public List<T> getItems() {
+				return items;
+			}
+
+			@Override
+			public boolean isLast() {
+				return last;
+			}
+		};
+	}
+}
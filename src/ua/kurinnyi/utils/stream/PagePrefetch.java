@@ -0,0 +1,192 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static java.util.Spliterator.ORDERED;
+
+final class PagePrefetch<L, R> implements BiSpliterator<L, R> {
+
+	private static final Object END = new Object();
+
+	private final Fetcher fetcher;
+	private List<? extends Pair<L, R>> page = Collections.emptyList();
+	private int index;
+	private boolean finished;
+
+	private PagePrefetch(Supplier<? extends Page<? extends Pair<L, R>>> pages, int prefetch) {
+		this.fetcher = new Fetcher(pages, new ArrayBlockingQueue<>(prefetch));
+	}
+
+	static int checkedPrefetch(int prefetch) {
+		if (prefetch < 1)
+			throw new IllegalArgumentException("At least one page should be prefetched: " + prefetch);
+		return prefetch;
+	}
+
+	static <L, R> PagePrefetch<L, R> of(Supplier<? extends Page<? extends Pair<L, R>>> pages, int prefetch) {
+		return new PagePrefetch<>(pages, prefetch);
+	}
+
+	// Registered as the stream's close handler, so short-circuiting terminals stop the fetching thread on return.
+	void close() {
+		fetcher.cancel();
+	}
+
+	@Override
+	public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+		while (index == page.size())
+			if (!nextPage())
+				return false;
+		Pair<L, R> pair = page.get(index++);
+		try {
+			action.accept(pair.getLeft(), pair.getRight());
+		} catch (RuntimeException | Error e) {
+			fetcher.cancel();
+			throw e;
+		}
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+		try {
+			do {
+				while (index < page.size()) {
+					Pair<L, R> pair = page.get(index++);
+					action.accept(pair.getLeft(), pair.getRight());
+				}
+			} while (nextPage());
+		} catch (RuntimeException | Error e) {
+			fetcher.cancel();
+			throw e;
+		}
+	}
+
+	// Forked tasks would take pages as fast as they arrive and keep them all; the buffer only stays bounded when
+	// a single consumer drains it, and the fetching thread already overlaps with that consumer.
+	@Override
+	public BiSpliterator<L, R> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return finished ? page.size() - index : Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean nextPage() {
+		if (finished)
+			return false;
+		Object next;
+		try {
+			next = fetcher.take();
+		} catch (InterruptedException e) {
+			fetcher.cancel();
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for the next page.");
+		}
+		if (next == END || next instanceof Failure) {
+			finished = true;
+			page = Collections.emptyList();
+			index = 0;
+			fetcher.cancel();
+			if (next instanceof Failure)
+				((Failure) next).rethrow();
+			return false;
+		}
+		page = ((Page<? extends Pair<L, R>>) next).getItems();
+		index = 0;
+		return true;
+	}
+
+
+	// Waits on a full buffer in short polls, so a cancel lands even if a page supplier swallows the interrupt.
+	private static final class Fetcher implements Runnable {
+		private static final long POLL_MILLIS = 100;
+
+		private final Supplier<? extends Page<?>> pages;
+		private final BlockingQueue<Object> buffer;
+		private volatile boolean cancelled;
+		private Thread thread;
+
+		Fetcher(Supplier<? extends Page<?>> pages, BlockingQueue<Object> buffer) {
+			this.pages = pages;
+			this.buffer = buffer;
+		}
+
+		Object take() throws InterruptedException {
+			if (thread == null) {
+				thread = new Thread(this, "BiStream-page-prefetch");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			return buffer.take();
+		}
+
+		void cancel() {
+			cancelled = true;
+			if (thread != null)
+				thread.interrupt();
+		}
+
+		@Override
+		public void run() {
+			try {
+				Page<?> page;
+				do {
+					page = pages.get();
+					if (page != null && !offer(page))
+						return;
+				} while (page != null && !page.isLast() && !cancelled);
+				offer(END);
+			} catch (InterruptedException e) {
+				// Cancelled by the consumer.
+			} catch (Throwable e) {
+				try {
+					offer(new Failure(e));
+				} catch (InterruptedException cancelled) {
+					// Cancelled by the consumer.
+				}
+			}
+		}
+
+		private boolean offer(Object item) throws InterruptedException {
+			while (!buffer.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS))
+				if (cancelled)
+					return false;
+			return !cancelled;
+		}
+	}
+
+	private static final class Failure {
+		private final Throwable thrown;
+
+		Failure(Throwable thrown) {
+			this.thrown = thrown;
+		}
+
+		void rethrow() {
+			if (thrown instanceof Error)
+				throw (Error) thrown;
+			if (thrown instanceof RuntimeException)
+				throw (RuntimeException) thrown;
+			throw new CompletionException(thrown);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongFunction;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+public class PairBuffer<L, R> {
+
+	private static final int SEQUENTIAL_SORT_THRESHOLD = 1 << 13;
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	private final Column lefts;
+	private final Column rights;
+	private final int sourceCharacteristics;
+	private Comparator<? super L> leftOrder;
+
+	PairBuffer(Column lefts, Column rights, int sourceCharacteristics) {
+		this.lefts = lefts;
+		this.rights = rights;
+		this.sourceCharacteristics = sourceCharacteristics & (DISTINCT | DISTINCT_LEFTS);
+	}
+
+	static <S extends BaseSpliterator<S>, L, R> PairBuffer<L, R> collect(S source, boolean parallel,
+	                                                                     LongFunction<PairBuffer<L, R>> buffers,
+	                                                                     BiConsumer<S, PairBuffer<L, R>> fill) {
+		int characteristics = source.characteristics();
+		PairBuffer<L, R> result = parallel
+				? BiStreamTask.invoke(source, leaf -> fill(leaf, buffers, fill), PairBuffer::append)
+				: fill(source, buffers, fill);
+		return new PairBuffer<>(result.lefts, result.rights, characteristics);
+	}
+
+	static <L, R> PairBuffer<L, R> collect(BiSpliterator<L, R> source, boolean parallel) {
+		return collect(source, parallel, expectedSize -> new PairBuffer<>(
+						new Column.Objects(Column.initialCapacity(expectedSize)),
+						new Column.Objects(Column.initialCapacity(expectedSize)), 0),
+				(leaf, buffer) -> leaf.forEachRemaining((left, right) -> {
+					((Column.Objects) buffer.lefts).add(left);
+					((Column.Objects) buffer.rights).add(right);
+				}));
+	}
+
+	private static <S extends BaseSpliterator<S>, L, R> PairBuffer<L, R> fill(S source,
+	                                                                         LongFunction<PairBuffer<L, R>> buffers,
+	                                                                         BiConsumer<S, PairBuffer<L, R>> fill) {
+		PairBuffer<L, R> buffer = buffers.apply(source.getExactSizeIfKnown());
+		fill.accept(source, buffer);
+		return buffer;
+	}
+
+	Column lefts() {
+		return lefts;
+	}
+
+	Column rights() {
+		return rights;
+	}
+
+	public int size() {
+		return lefts.size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public L getLeft(int index) {
+		return (L) lefts.get(checkedIndex(index));
+	}
+
+	@SuppressWarnings("unchecked")
+	public R getRight(int index) {
+		return (R) rights.get(checkedIndex(index));
+	}
+
+	public long getLeftAsLong(int index) {
+		return lefts.getLong(checkedIndex(index));
+	}
+
+	public int getLeftAsInt(int index) {
+		return lefts.getInt(checkedIndex(index));
+	}
+
+	public double getRightAsDouble(int index) {
+		return rights.getDouble(checkedIndex(index));
+	}
+
+	public int getRightAsInt(int index) {
+		return rights.getInt(checkedIndex(index));
+	}
+
+	public PairBuffer<L, R> sortByLeft() {
+		return sortByLeft(null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public PairBuffer<L, R> sortByLeft(Comparator<? super L> comparator) {
+		sort(lefts, (Comparator<Object>) comparator);
+		leftOrder = comparator == null ? (Comparator<? super L>) Comparator.naturalOrder() : comparator;
+		return this;
+	}
+
+	public PairBuffer<L, R> sortByRight() {
+		return sortByRight(null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public PairBuffer<L, R> sortByRight(Comparator<? super R> comparator) {
+		sort(rights, (Comparator<Object>) comparator);
+		leftOrder = null;
+		return this;
+	}
+
+	public int binarySearchLeft(L key) {
+		return binarySearchLeft(key, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public int binarySearchLeft(L key, Comparator<? super L> comparator) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (lefts.compareTo(middle, key, (Comparator<Object>) comparator) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		if (low < size() && lefts.compareTo(low, key, (Comparator<Object>) comparator) == 0)
+			return low;
+		return -(low + 1);
+	}
+
+	public BiStream<L, R> stream() {
+		int characteristics = ORDERED | SIZED | SUBSIZED | sourceCharacteristics
+				| (leftOrder == null ? 0 : SORTED);
+		return new BiStream<>(new Source<>(this, 0, size(), characteristics), false);
+	}
+
+	private PairBuffer<L, R> append(PairBuffer<L, R> other) {
+		lefts.appendAll(other.lefts);
+		rights.appendAll(other.rights);
+		return this;
+	}
+
+	private int checkedIndex(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		return index;
+	}
+
+	private void sort(Column keys, Comparator<Object> comparator) {
+		int[] order = new int[size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		new SortTask(order, new int[order.length], 0, order.length,
+				(first, second) -> keys.compare(first, second, comparator)).invoke();
+		lefts.permute(order);
+		rights.permute(order);
+	}
+
+
+	private static final class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] order;
+		private final int[] workspace;
+		private final int from;
+		private final int to;
+		private final IntBinaryOperator comparator;
+
+		SortTask(int[] order, int[] workspace, int from, int to, IntBinaryOperator comparator) {
+			this.order = order;
+			this.workspace = workspace;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_SORT_THRESHOLD) {
+				sort(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SortTask(order, workspace, from, middle, comparator),
+					new SortTask(order, workspace, middle, to, comparator));
+			merge(from, middle, to);
+		}
+
+		private void sort(int from, int to) {
+			if (to - from <= INSERTION_SORT_THRESHOLD) {
+				for (int i = from + 1; i < to; i++) {
+					int current = order[i];
+					int j = i - 1;
+					for (; j >= from && comparator.applyAsInt(order[j], current) > 0; j--)
+						order[j + 1] = order[j];
+					order[j + 1] = current;
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			sort(from, middle);
+			sort(middle, to);
+			merge(from, middle, to);
+		}
+
+		private void merge(int from, int middle, int to) {
+			if (comparator.applyAsInt(order[middle - 1], order[middle]) <= 0)
+				return;
+			System.arraycopy(order, from, workspace, from, to - from);
+			int left = from;
+			int right = middle;
+			for (int i = from; i < to; i++) {
+				if (right >= to || left < middle && comparator.applyAsInt(workspace[left], workspace[right]) <= 0)
+					order[i] = workspace[left++];
+				else
+					order[i] = workspace[right++];
+			}
+		}
+	}
+
+	private static final class Source<L, R> implements BiSpliterator<L, R> {
+		private final PairBuffer<L, R> buffer;
+		private int index;
+		private final int fence;
+		private final int characteristics;
+
+		Source(PairBuffer<L, R> buffer, int index, int fence, int characteristics) {
+			this.buffer = buffer;
+			this.index = index;
+			this.fence = fence;
+			this.characteristics = characteristics;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(BiConsumer<? super L, ? super R> action) {
+			if (index >= fence)
+				return false;
+			int current = index++;
+			action.accept((L) buffer.lefts.get(current), (R) buffer.rights.get(current));
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(BiConsumer<? super L, ? super R> action) {
+			Column lefts = buffer.lefts;
+			Column rights = buffer.rights;
+			int from = index;
+			index = fence;
+			for (int i = from; i < fence; i++)
+				action.accept((L) lefts.get(i), (R) rights.get(i));
+		}
+
+		@Override
+		public BiSpliterator<L, R> trySplit() {
+			int middle = (index + fence) >>> 1;
+			if (middle <= index)
+				return null;
+			BiSpliterator<L, R> prefix = new Source<>(buffer, index, middle, characteristics);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package ua.kurinnyi.utils.stream;
+
+public final class PairCodec<L, R> {
+
+	private final ValueCodec<L> leftCodec;
+	private final ValueCodec<R> rightCodec;
+
+	private PairCodec(ValueCodec<L> leftCodec, ValueCodec<R> rightCodec) {
+		this.leftCodec = leftCodec;
+		this.rightCodec = rightCodec;
+	}
+
+	public static <L, R> PairCodec<L, R> of(ValueCodec<L> leftCodec, ValueCodec<R> rightCodec) {
+		return new PairCodec<>(leftCodec, rightCodec);
+	}
+
+	public ValueCodec<L> getLeftCodec() {
+		return leftCodec;
+	}
+
+	public ValueCodec<R> getRightCodec() {
+		return rightCodec;
+	}
+}
@@ -0,0 +1,109 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+public final class PairIndex<L, R> {
+
+	private final Object[] keys;
+	private final int[] hashes;
+	private final int[] starts;
+	private final Object[] values;
+	private final int[] slots;
+
+	private PairIndex(Object[] keys, int[] hashes, int[] starts, Object[] values, int[] slots) {
+		this.keys = keys;
+		this.hashes = hashes;
+		this.starts = starts;
+		this.values = values;
+		this.slots = slots;
+	}
+
+	static <L, R> PairIndex<L, R> of(PairBuffer<L, R> pairs) {
+		Keys keys = new Keys();
+		int[] ordinals = new int[pairs.size()];
+		for (int i = 0; i < ordinals.length; i++)
+			ordinals[i] = keys.ordinal(pairs.lefts().get(i));
+		int[] starts = IndexTable.starts(ordinals, keys.count);
+		int[] positions = IndexTable.positions(ordinals, starts);
+		Object[] values = new Object[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++)
+			values[positions[i]] = pairs.rights().get(i);
+		return new PairIndex<>(Arrays.copyOf(keys.keys, keys.count), Arrays.copyOf(keys.hashes, keys.count), starts,
+				values, keys.slots);
+	}
+
+	public List<R> get(Object key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? Collections.emptyList() : new IndexTable.Values<>(values, starts[ordinal], starts[ordinal + 1]);
+	}
+
+	@SuppressWarnings("unchecked")
+	public R getFirst(Object key) {
+		int ordinal = find(key);
+		return ordinal < 0 ? null : (R) values[starts[ordinal]];
+	}
+
+	public boolean containsKey(Object key) {
+		return find(key) >= 0;
+	}
+
+	public int keyCount() {
+		return keys.length;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super L, ? super R> action) {
+		for (int ordinal = 0; ordinal < keys.length; ordinal++)
+			for (int i = starts[ordinal]; i < starts[ordinal + 1]; i++)
+				action.accept((L) keys[ordinal], (R) values[i]);
+	}
+
+	private int find(Object key) {
+		int hash = IndexTable.hash(key);
+		int mask = slots.length - 1;
+		for (int index = hash & mask; slots[index] != 0; index = (index + 1) & mask) {
+			int ordinal = slots[index] - 1;
+			if (hashes[ordinal] == hash && Objects.equals(keys[ordinal], key))
+				return ordinal;
+		}
+		return -1;
+	}
+
+
+	private static final class Keys {
+		private Object[] keys = new Object[IndexTable.INITIAL_KEYS];
+		private int[] hashes = new int[IndexTable.INITIAL_KEYS];
+		private int[] slots = new int[IndexTable.INITIAL_KEYS * 2];
+		private int count;
+
+		int ordinal(Object key) {
+			int hash = IndexTable.hash(key);
+			int mask = slots.length - 1;
+			int index = hash & mask;
+			while (slots[index] != 0) {
+				int ordinal = slots[index] - 1;
+				if (hashes[ordinal] == hash && Objects.equals(keys[ordinal], key))
+					return ordinal;
+				index = (index + 1) & mask;
+			}
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+				hashes = Arrays.copyOf(hashes, count * 2);
+			}
+			keys[count] = key;
+			hashes[count] = hash;
+			slots[index] = ++count;
+			if (IndexTable.isFull(count, slots))
+				slots = IndexTable.slots(count, slots.length * 2, ordinal -> hashes[ordinal]);
+			return count - 1;
+		}
+	}
+}
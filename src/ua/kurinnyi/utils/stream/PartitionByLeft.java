@@ -0,0 +1,176 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+final class PartitionByLeft<L, R> {
+
+	private static final int MAX_BATCH_SIZE = 64;
+
+	private final List<Lane> lanes;
+	private final BiConsumer<? super L, ? super R> action;
+	private final int batchSize;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	private PartitionByLeft(int laneCount, int queueCapacity, BiConsumer<? super L, ? super R> action) {
+		this.action = action;
+		this.batchSize = Math.min(MAX_BATCH_SIZE, queueCapacity);
+		this.lanes = new ArrayList<>(laneCount);
+		for (int i = 0; i < laneCount; i++)
+			lanes.add(new Lane(i, Math.max(1, queueCapacity / batchSize)));
+	}
+
+	static void checkArguments(int laneCount, int queueCapacity) {
+		if (laneCount < 1)
+			throw new IllegalArgumentException("At least one lane is required: " + laneCount);
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("Lane queue should hold at least one pair: " + queueCapacity);
+	}
+
+	// Pairs are dispatched from the calling thread in encounter order, so every lane sees its keys in that order.
+	static <L, R> void run(BiSpliterator<L, R> source, int laneCount, int queueCapacity,
+	                       BiConsumer<? super L, ? super R> action) {
+		new PartitionByLeft<L, R>(laneCount, queueCapacity, action).feed(source);
+	}
+
+	private void feed(BiSpliterator<L, R> source) {
+		for (Lane lane : lanes)
+			lane.thread.start();
+		boolean drained = false;
+		try {
+			BiConsumer<L, R> dispatch = this::dispatch;
+			while (failure.get() == null && source.tryAdvance(dispatch));
+			drain();
+			drained = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while feeding lanes.");
+		} finally {
+			if (!drained)
+				cancel();
+		}
+		rethrowFailure();
+	}
+
+	private void dispatch(L left, R right) {
+		int hash = Objects.hashCode(left);
+		Lane lane = lanes.get(Math.floorMod(hash ^ hash >>> 16, lanes.size()));
+		Batch pending = lane.pending;
+		pending.lefts[pending.size] = left;
+		pending.rights[pending.size++] = right;
+		if (pending.size == batchSize)
+			lane.flush();
+	}
+
+	private void drain() throws InterruptedException {
+		for (Lane lane : lanes) {
+			if (lane.pending.size > 0)
+				lane.flush();
+			lane.queue.put(Batch.END);
+		}
+		for (Lane lane : lanes)
+			lane.thread.join();
+	}
+
+	private void cancel() {
+		for (Lane lane : lanes)
+			lane.thread.interrupt();
+		boolean interrupted = false;
+		for (Lane lane : lanes) {
+			while (lane.thread.isAlive()) {
+				try {
+					lane.thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void rethrowFailure() {
+		Throwable thrown = failure.get();
+		if (thrown instanceof Error)
+			throw (Error) thrown;
+		if (thrown != null)
+			throw (RuntimeException) thrown;
+	}
+
+
+	private final class Lane implements Runnable {
+		private final BlockingQueue<Batch> queue;
+		private final Queue<Batch> free = new ConcurrentLinkedQueue<>();
+		private final Thread thread;
+		private Batch pending;
+
+		Lane(int index, int capacity) {
+			this.queue = new LinkedBlockingQueue<>(capacity);
+			this.thread = new Thread(this, "BiStream-lane-" + index);
+			this.thread.setDaemon(true);
+			this.pending = new Batch(batchSize);
+		}
+
+		// Lanes hand processed batches back through free, so a long run only allocates about a queue's worth.
+		void flush() {
+			try {
+				queue.put(pending);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Interrupted while feeding lanes.");
+			}
+			Batch recycled = free.poll();
+			pending = recycled != null ? recycled : new Batch(batchSize);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				Batch batch;
+				while ((batch = queue.take()) != Batch.END) {
+					if (failure.get() != null)
+						continue;
+					try {
+						for (int i = 0; i < batch.size; i++)
+							action.accept((L) batch.lefts[i], (R) batch.rights[i]);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+					batch.clear();
+					free.offer(batch);
+				}
+			} catch (InterruptedException e) {
+				// Cancelled by the feeding thread.
+			}
+		}
+	}
+
+	private static final class Batch {
+		static final Batch END = new Batch(0);
+
+		final Object[] lefts;
+		final Object[] rights;
+		int size;
+
+		Batch(int capacity) {
+			lefts = new Object[capacity];
+			rights = new Object[capacity];
+		}
+
+		void clear() {
+			Arrays.fill(lefts, 0, size, null);
+			Arrays.fill(rights, 0, size, null);
+			size = 0;
+		}
+	}
+}
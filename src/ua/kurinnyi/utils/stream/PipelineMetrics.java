@@ -0,0 +1,96 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+final class PipelineMetrics {
+
+	private final String name;
+	private final MetricsSink sink;
+	private final List<StageMetrics> stages = new ArrayList<>();
+
+	PipelineMetrics(String name, MetricsSink sink) {
+		this.name = name;
+		this.sink = sink;
+	}
+
+	<L, R> BiPredicate<L, R> filter(BiPredicate<? super L, ? super R> predicate) {
+		StageMetrics stage = stage("filter");
+		return (left, right) -> {
+			stage.elementsIn.increment();
+			long start = System.nanoTime();
+			boolean matches = predicate.test(left, right);
+			stage.nanos.add(System.nanoTime() - start);
+			if (matches)
+				stage.elementsOut.increment();
+			return matches;
+		};
+	}
+
+	<L, R> BiConsumer<L, R> peek(BiConsumer<? super L, ? super R> action) {
+		StageMetrics stage = stage("peek");
+		return (left, right) -> {
+			stage.elementsIn.increment();
+			long start = System.nanoTime();
+			action.accept(left, right);
+			stage.nanos.add(System.nanoTime() - start);
+			stage.elementsOut.increment();
+		};
+	}
+
+	<L, R, M> BiFunction<L, R, M> map(String operation, BiFunction<? super L, ? super R, ? extends M> mapper) {
+		StageMetrics stage = stage(operation);
+		return (left, right) -> {
+			stage.elementsIn.increment();
+			long start = System.nanoTime();
+			M mapped = mapper.apply(left, right);
+			stage.nanos.add(System.nanoTime() - start);
+			stage.elementsOut.increment();
+			return mapped;
+		};
+	}
+
+	// Only producing the nested source is timed: its elements are pulled lazily by the stages downstream.
+	<L, R, L1, R1> BiFunction<L, R, BiSpliterator<L1, R1>> expand(
+			String operation, BiFunction<? super L, ? super R, ? extends BiSpliterator<L1, R1>> expander) {
+		StageMetrics stage = stage(operation);
+		return (left, right) -> {
+			stage.elementsIn.increment();
+			long start = System.nanoTime();
+			BiSpliterator<L1, R1> expanded = expander.apply(left, right);
+			stage.nanos.add(System.nanoTime() - start);
+			return expanded == null ? null
+					: BiSpliterators.peek(expanded, (expandedLeft, expandedRight) -> stage.elementsOut.increment());
+		};
+	}
+
+	<L, R, T> T terminal(String operation, BiSpliterator<L, R> source, Function<BiSpliterator<L, R>, T> body) {
+		StageMetrics stage = stage(operation);
+		BiSpliterator<L, R> counted = BiSpliterators.peek(source, (left, right) -> {
+			stage.elementsIn.increment();
+			stage.elementsOut.increment();
+		});
+		long start = System.nanoTime();
+		try {
+			return body.apply(counted);
+		} finally {
+			stage.nanos.add(System.nanoTime() - start);
+			report();
+		}
+	}
+
+	void report() {
+		for (StageMetrics stage : stages)
+			sink.record(stage);
+	}
+
+	private StageMetrics stage(String operation) {
+		StageMetrics stage = new StageMetrics(name, stages.size(), operation);
+		stages.add(stage);
+		return stage;
+	}
+}
@@ -0,0 +1,150 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+import static java.util.stream.Collector.Characteristics.UNORDERED;
+
+// KLL sketch: level h holds values that each stand for 2^h inputs. A full level is sorted and every other value,
+// starting at a random offset, moves one level up; lower levels get geometrically less room than the top one.
+final class QuantileSketch {
+
+	static final int DEFAULT_K = 200;
+	private static final double LEVEL_DECAY = 2.0 / 3;
+
+	private final int k;
+	private double[][] levels = new double[0][];
+	private int[] sizes = new int[0];
+	private int retained;
+	private int capacity;
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	private QuantileSketch(int k) {
+		this.k = k;
+		grow();
+	}
+
+	static double[] checkedQuantiles(double[] quantiles) {
+		for (double quantile : quantiles)
+			if (!(quantile >= 0 && quantile <= 1))
+				throw new IllegalArgumentException("Quantile should be between 0 and 1: " + quantile);
+		return quantiles.clone();
+	}
+
+	static <R> Collector<R, ?, double[]> collector(ToDoubleFunction<? super R> value, double[] quantiles) {
+		return Collector.<R, QuantileSketch, double[]>of(() -> new QuantileSketch(DEFAULT_K),
+				(sketch, right) -> sketch.add(value.applyAsDouble(right)),
+				QuantileSketch::merge,
+				sketch -> sketch.quantiles(quantiles),
+				UNORDERED);
+	}
+
+	void add(double value) {
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		append(0, value);
+		if (retained >= capacity)
+			compress();
+	}
+
+	QuantileSketch merge(QuantileSketch other) {
+		while (levels.length < other.levels.length)
+			grow();
+		for (int level = 0; level < other.levels.length; level++)
+			for (int i = 0; i < other.sizes[level]; i++)
+				append(level, other.levels[level][i]);
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		while (retained >= capacity)
+			compress();
+		return this;
+	}
+
+	double[] quantiles(double[] quantiles) {
+		double[] values = new double[retained];
+		long[] weights = new long[retained];
+		Integer[] order = new Integer[retained];
+		int index = 0;
+		for (int level = 0; level < levels.length; level++) {
+			for (int i = 0; i < sizes[level]; i++) {
+				values[index] = levels[level][i];
+				weights[index] = 1L << level;
+				order[index] = index;
+				index++;
+			}
+		}
+		Arrays.sort(order, (first, second) -> Double.compare(values[first], values[second]));
+		double[] result = new double[quantiles.length];
+		for (int q = 0; q < quantiles.length; q++)
+			result[q] = quantile(quantiles[q], values, weights, order);
+		return result;
+	}
+
+	private double quantile(double quantile, double[] values, long[] weights, Integer[] order) {
+		if (count == 0)
+			return Double.NaN;
+		if (quantile == 0)
+			return min;
+		if (quantile == 1)
+			return max;
+		double target = quantile * count;
+		long cumulative = 0;
+		for (int index : order) {
+			cumulative += weights[index];
+			if (cumulative >= target)
+				return values[index];
+		}
+		return max;
+	}
+
+	private void compress() {
+		for (int level = 0; level < levels.length; level++) {
+			if (sizes[level] >= capacity(level)) {
+				if (level + 1 == levels.length)
+					grow();
+				compact(level);
+				if (retained < capacity)
+					return;
+			}
+		}
+	}
+
+	private void compact(int level) {
+		double[] values = levels[level];
+		int size = sizes[level];
+		Arrays.sort(values, 0, size);
+		int kept = size % 2;
+		int offset = kept + (ThreadLocalRandom.current().nextBoolean() ? 1 : 0);
+		for (int i = offset; i < size; i += 2)
+			append(level + 1, values[i]);
+		sizes[level] = kept;
+		retained -= size - kept;
+	}
+
+	private void append(int level, double value) {
+		if (sizes[level] == levels[level].length)
+			levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+		levels[level][sizes[level]++] = value;
+		retained++;
+	}
+
+	private void grow() {
+		int height = levels.length + 1;
+		levels = Arrays.copyOf(levels, height);
+		sizes = Arrays.copyOf(sizes, height);
+		levels[height - 1] = new double[8];
+		capacity = 0;
+		for (int level = 0; level < height; level++)
+			capacity += capacity(level);
+	}
+
+	private int capacity(int level) {
+		return (int) Math.ceil(k * Math.pow(LEVEL_DECAY, levels.length - level - 1)) + 1;
+	}
+}
@@ -0,0 +1,104 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+final class Reservoir<L, R> implements BiConsumer<L, R> {
+
+	private final int k;
+	private Object[] lefts;
+	private Object[] rights;
+	private int size;
+	private long seen;
+
+	private Reservoir(int k) {
+		this.k = k;
+		this.lefts = new Object[Math.min(k, 16)];
+		this.rights = new Object[lefts.length];
+	}
+
+	private Reservoir(int k, int capacity) {
+		this.k = k;
+		this.lefts = new Object[capacity];
+		this.rights = new Object[capacity];
+	}
+
+	static <L, R> List<Pair<L, R>> sample(BiSpliterator<L, R> source, boolean parallel, int k) {
+		Reservoir<L, R> reservoir = !parallel ? fill(source, k)
+				: BiStreamTask.invoke(source, leaf -> fill(leaf, k), Reservoir::combine);
+		return reservoir.toList();
+	}
+
+	private static <L, R> Reservoir<L, R> fill(BiSpliterator<L, R> source, int k) {
+		Reservoir<L, R> reservoir = new Reservoir<>(k);
+		source.forEachRemaining(reservoir);
+		return reservoir;
+	}
+
+	@Override
+	public void accept(L left, R right) {
+		long position = seen++;
+		if (size < k) {
+			add(left, right);
+			return;
+		}
+		long slot = ThreadLocalRandom.current().nextLong(position + 1);
+		if (slot < k) {
+			lefts[(int) slot] = left;
+			rights[(int) slot] = right;
+		}
+	}
+
+	// Each draw comes from one side with probability proportional to the inputs it has not yet given away, which
+	// keeps the merged sample uniform over both halves.
+	Reservoir<L, R> combine(Reservoir<L, R> other) {
+		Reservoir<L, R> merged = new Reservoir<>(k, (int) Math.min(k, (long) size + other.size));
+		Random random = ThreadLocalRandom.current();
+		long mine = seen;
+		long theirs = other.seen;
+		int mineLeft = size;
+		int theirsLeft = other.size;
+		while (merged.size < merged.lefts.length) {
+			if (random.nextDouble() * (mine + theirs) < mine) {
+				merged.take(lefts, rights, random.nextInt(mineLeft), mineLeft--);
+				mine--;
+			} else {
+				merged.take(other.lefts, other.rights, random.nextInt(theirsLeft), theirsLeft--);
+				theirs--;
+			}
+		}
+		merged.seen = seen + other.seen;
+		return merged;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Pair<L, R>> toList() {
+		List<Pair<L, R>> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			result.add(Pair.of((L) lefts[i], (R) rights[i]));
+		return result;
+	}
+
+	private void take(Object[] fromLefts, Object[] fromRights, int index, int available) {
+		lefts[size] = fromLefts[index];
+		rights[size++] = fromRights[index];
+		fromLefts[index] = fromLefts[available - 1];
+		fromRights[index] = fromRights[available - 1];
+	}
+
+	private void add(Object left, Object right) {
+		if (size == lefts.length) {
+			int capacity = (int) Math.min(k, Math.max(16L, 2L * size));
+			lefts = Arrays.copyOf(lefts, capacity);
+			rights = Arrays.copyOf(rights, capacity);
+		}
+		lefts[size] = left;
+		rights[size++] = right;
+	}
+}
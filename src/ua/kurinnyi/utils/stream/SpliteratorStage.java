@@ -0,0 +1,27 @@
+package ua.kurinnyi.utils.stream;
+
+import static java.util.Spliterator.*;
+import static ua.kurinnyi.utils.stream.BaseSpliterator.DISTINCT_LEFTS;
+
+abstract class SpliteratorStage<S extends BaseSpliterator<S>, T> {
+	final S source;
+
+	SpliteratorStage(S source) {
+		this.source = source;
+	}
+
+	abstract T wrap(S prefix);
+
+	public T trySplit() {
+		S prefix = source.trySplit();
+		return prefix == null ? null : wrap(prefix);
+	}
+
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	public int characteristics() {
+		return source.characteristics() & ~(DISTINCT | DISTINCT_LEFTS | SORTED | NONNULL);
+	}
+}
@@ -0,0 +1,54 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class StageMetrics {
+
+	private final String pipeline;
+	private final int index;
+	private final String stage;
+	final LongAdder elementsIn = new LongAdder();
+	final LongAdder elementsOut = new LongAdder();
+	final LongAdder nanos = new LongAdder();
+
+	StageMetrics(String pipeline, int index, String stage) {
+		this.pipeline = pipeline;
+		this.index = index;
+		this.stage = stage;
+	}
+
+	public String getPipeline() {
+		return pipeline;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public long getElementsIn() {
+		return elementsIn.sum();
+	}
+
+	public long getElementsOut() {
+		return elementsOut.sum();
+	}
+
+	public double getSelectivity() {
+		long in = getElementsIn();
+		return in == 0 ? 0 : (double) getElementsOut() / in;
+	}
+
+	public long getNanos() {
+		return nanos.sum();
+	}
+
+	@Override
+	public String toString() {
+		return pipeline + "#" + index + " " + stage + ": in=" + getElementsIn() + ", out=" + getElementsOut()
+				+ ", nanos=" + getNanos();
+	}
+}
@@ -0,0 +1,152 @@
+package ua.kurinnyi.utils.stream;
+
+import ua.kurinnyi.utils.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.stream.Collector;
+
+final class TopK<L, R> implements BiConsumer<L, R> {
+
+	private final int k;
+	private final Comparator<? super R> comparator;
+	private Object[] lefts;
+	private Object[] rights;
+	private long[] positions;
+	private int size;
+	private long seen;
+
+	TopK(int k, Comparator<? super R> comparator) {
+		this.k = k;
+		this.comparator = comparator;
+		int capacity = Math.min(k, 16);
+		this.lefts = new Object[capacity];
+		this.rights = new Object[capacity];
+		this.positions = new long[capacity];
+	}
+
+	static int checkedK(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("k should not be negative: " + k);
+		return k;
+	}
+
+	static <L, R> List<Pair<L, R>> collect(BiSpliterator<L, R> source, boolean parallel, int k,
+	                                       Comparator<? super R> comparator) {
+		TopK<L, R> top = !parallel ? fill(source, k, comparator)
+				: BiStreamTask.invoke(source, leaf -> fill(leaf, k, comparator), TopK::combine);
+		return top.toList(Pair::of);
+	}
+
+	static <R> Collector<R, ?, List<R>> collector(int k, Comparator<? super R> comparator) {
+		return Collector.<R, TopK<Object, R>, List<R>>of(() -> new TopK<>(k, comparator),
+				(top, value) -> top.accept(null, value),
+				TopK::combine,
+				top -> top.toList((left, right) -> right));
+	}
+
+	private static <L, R> TopK<L, R> fill(BiSpliterator<L, R> source, int k, Comparator<? super R> comparator) {
+		TopK<L, R> top = new TopK<>(k, comparator);
+		source.forEachRemaining(top);
+		return top;
+	}
+
+	@Override
+	public void accept(L left, R right) {
+		offer(left, right, seen++);
+	}
+
+	TopK<L, R> combine(TopK<L, R> later) {
+		for (int i = 0; i < later.size; i++)
+			offer(later.lefts[i], later.rights[i], seen + later.positions[i]);
+		seen += later.seen;
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> List<T> toList(BiFunction<? super L, ? super R, ? extends T> mapper) {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, (first, second) -> -compare(first, second));
+		List<T> result = new ArrayList<>(size);
+		for (int index : order)
+			result.add(mapper.apply((L) lefts[index], (R) rights[index]));
+		return result;
+	}
+
+	private void offer(Object left, Object right, long position) {
+		if (size < k) {
+			ensureCapacity();
+			set(size, left, right, position);
+			siftUp(size++);
+		} else if (k > 0 && isBetter(right, position, 0)) {
+			set(0, left, right, position);
+			siftDown(0);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean isBetter(Object right, long position, int index) {
+		int comparison = comparator.compare((R) right, (R) rights[index]);
+		return comparison > 0 || comparison == 0 && position < positions[index];
+	}
+
+	// Worst candidate on top; ties go to encounter order so the result matches a stable sort followed by a limit.
+	@SuppressWarnings("unchecked")
+	private int compare(int first, int second) {
+		int comparison = comparator.compare((R) rights[first], (R) rights[second]);
+		return comparison != 0 ? comparison : Long.compare(positions[second], positions[first]);
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (compare(index, parent) >= 0)
+				return;
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size)
+				return;
+			if (child + 1 < size && compare(child + 1, child) < 0)
+				child++;
+			if (compare(index, child) <= 0)
+				return;
+			swap(index, child);
+			index = child;
+		}
+	}
+
+	private void set(int index, Object left, Object right, long position) {
+		lefts[index] = left;
+		rights[index] = right;
+		positions[index] = position;
+	}
+
+	private void swap(int first, int second) {
+		Object left = lefts[first];
+		Object right = rights[first];
+		long position = positions[first];
+		set(first, lefts[second], rights[second], positions[second]);
+		set(second, left, right, position);
+	}
+
+	private void ensureCapacity() {
+		if (size < rights.length)
+			return;
+		int capacity = (int) Math.min(k, Math.max(16L, 2L * rights.length));
+		lefts = Arrays.copyOf(lefts, capacity);
+		rights = Arrays.copyOf(rights, capacity);
+		positions = Arrays.copyOf(positions, capacity);
+	}
+}
@@ -0,0 +1,108 @@
+package ua.kurinnyi.utils.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface ValueCodec<T> {
+
+	int sizeOf(T value);
+
+	void encode(T value, ByteBuffer target);
+
+	T decode(ByteBuffer source);
+
+	static ValueCodec<Long> longs() {
+		return new ValueCodec<Long>() {
+			@Override
+			public int sizeOf(Long value) {
+				return Long.BYTES;
+			}
+
+			@Override
+			public void encode(Long value, ByteBuffer target) {
+				target.putLong(value);
+			}
+
+			@Override
+			public Long decode(ByteBuffer source) {
+				return source.getLong();
+			}
+		};
+	}
+
+	static ValueCodec<Integer> ints() {
+		return new ValueCodec<Integer>() {
+			@Override
+			public int sizeOf(Integer value) {
+				return Integer.BYTES;
+			}
+
+			@Override
+			public void encode(Integer value, ByteBuffer target) {
+				target.putInt(value);
+			}
+
+			@Override
+			public Integer decode(ByteBuffer source) {
+				return source.getInt();
+			}
+		};
+	}
+
+	static ValueCodec<Double> doubles() {
+		return new ValueCodec<Double>() {
+			@Override
+			public int sizeOf(Double value) {
+				return Double.BYTES;
+			}
+
+			@Override
+			public void encode(Double value, ByteBuffer target) {
+				target.putDouble(value);
+			}
+
+			@Override
+			public Double decode(ByteBuffer source) {
+				return source.getDouble();
+			}
+		};
+	}
+
+	static ValueCodec<String> strings() {
+		return new ValueCodec<String>() {
+			@Override
+			public int sizeOf(String value) {
+				int size = 0;
+				for (int i = 0; i < value.length(); i++) {
+					char current = value.charAt(i);
+					if (current < 0x80) {
+						size += 1;
+					} else if (current < 0x800) {
+						size += 2;
+					} else if (Character.isHighSurrogate(current) && i + 1 < value.length()
+							&& Character.isLowSurrogate(value.charAt(i + 1))) {
+						size += 4;
+						i++;
+					} else if (Character.isSurrogate(current)) {
+						size += 1; // getBytes replaces an unpaired surrogate with '?'
+					} else {
+						size += 3;
+					}
+				}
+				return size;
+			}
+
+			@Override
+			public void encode(String value, ByteBuffer target) {
+				target.put(value.getBytes(StandardCharsets.UTF_8));
+			}
+
+			@Override
+			public String decode(ByteBuffer source) {
+				byte[] bytes = new byte[source.remaining()];
+				source.get(bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+	}
+}
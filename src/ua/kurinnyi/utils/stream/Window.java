@@ -0,0 +1,56 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.Objects;
+
+public final class Window<T> {
+
+	private final long start;
+	private final long end;
+	private final T value;
+
+	Window(long start, long end, T value) {
+		this.start = start;
+		this.end = end;
+		this.value = value;
+	}
+
+	public static <T> Window<T> of(long start, long end, T value) {
+		return new Window<>(start, end, value);
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public T getValue() {
+		return value;
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof Window)) return false;
+
+		Window<?> otherWindow = (Window<?>) other;
+
+		return start == otherWindow.start && end == otherWindow.end && Objects.equals(value, otherWindow.value);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Long.hashCode(start);
+		result = 31 * result + Long.hashCode(end);
+		result = 31 * result + Objects.hashCode(value);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + start + ", " + end + ") " + value;
+	}
+}
@@ -0,0 +1,59 @@
+package ua.kurinnyi.utils.stream;
+
+public final class WindowSpec {
+
+	private final long size;
+	private final long slide;
+	private final long gap;
+	private final long allowedLateness;
+
+	private WindowSpec(long size, long slide, long gap, long allowedLateness) {
+		this.size = size;
+		this.slide = slide;
+		this.gap = gap;
+		this.allowedLateness = allowedLateness;
+	}
+
+	public static WindowSpec tumbling(long size) {
+		return sliding(size, size);
+	}
+
+	public static WindowSpec sliding(long size, long slide) {
+		if (size < 1 || slide < 1)
+			throw new IllegalArgumentException("Window size and slide should be positive: " + size + ", " + slide);
+		return new WindowSpec(size, slide, 0, 0);
+	}
+
+	public static WindowSpec session(long gap) {
+		if (gap < 1)
+			throw new IllegalArgumentException("Session gap should be positive: " + gap);
+		return new WindowSpec(0, 0, gap, 0);
+	}
+
+	// Windows stay open until the newest timestamp seen is this far past their end; later events are dropped.
+	public WindowSpec allowingLateness(long lateness) {
+		if (lateness < 0)
+			throw new IllegalArgumentException("Allowed lateness should not be negative: " + lateness);
+		return new WindowSpec(size, slide, gap, lateness);
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getSlide() {
+		return slide;
+	}
+
+	public long getGap() {
+		return gap;
+	}
+
+	public long getAllowedLateness() {
+		return allowedLateness;
+	}
+
+	boolean isSession() {
+		return gap > 0;
+	}
+}
@@ -0,0 +1,213 @@
+package ua.kurinnyi.utils.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+import static java.util.Spliterator.ORDERED;
+
+// Event time only moves forward with the newest timestamp seen, so the source is read sequentially. Every pair is
+// folded into its open windows right away; a window is emitted and forgotten once event time passes its end.
+final class Windowing<L, R, A, D> implements BiSpliterator<L, Window<D>> {
+
+	private static final Object NULL_KEY = new Object();
+
+	private final BiSpliterator<L, R> source;
+	private final ToLongFunction<? super R> timestamp;
+	private final WindowSpec spec;
+	private final Collector<? super R, A, D> collector;
+	private final Supplier<A> supplier;
+	private final BiConsumer<A, ? super R> accumulator;
+	private final BinaryOperator<A> combiner;
+	private final Map<Object, List<Open<A>>> open = new HashMap<>();
+	private final PriorityQueue<Deadline<A>> deadlines = new PriorityQueue<>(Deadline::compareTo);
+	private final ArrayDeque<Open<A>> ready = new ArrayDeque<>();
+	private final BiConsumer<L, R> ingest = this::ingest;
+	private long newest = Long.MIN_VALUE;
+	private long watermark = Long.MIN_VALUE;
+	private long sequence;
+	private boolean exhausted;
+
+	Windowing(BiSpliterator<L, R> source, ToLongFunction<? super R> timestamp, WindowSpec spec,
+	          Collector<? super R, A, D> collector) {
+		this.source = source;
+		this.timestamp = timestamp;
+		this.spec = spec;
+		this.collector = collector;
+		this.supplier = collector.supplier();
+		this.accumulator = collector.accumulator();
+		this.combiner = collector.combiner();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean tryAdvance(BiConsumer<? super L, ? super Window<D>> action) {
+		while (ready.isEmpty()) {
+			if (exhausted)
+				return false;
+			if (!source.tryAdvance(ingest)) {
+				exhausted = true;
+				closeUntil(Long.MAX_VALUE);
+			}
+		}
+		Open<A> window = ready.poll();
+		action.accept(window.key == NULL_KEY ? null : (L) window.key,
+				new Window<>(window.start, window.end, collector.finisher().apply(window.container)));
+		return true;
+	}
+
+	@Override
+	public BiSpliterator<L, Window<D>> trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & ORDERED;
+	}
+
+	private void ingest(L left, R right) {
+		long time = timestamp.applyAsLong(right);
+		if (time > newest) {
+			newest = time;
+			long lateness = spec.getAllowedLateness();
+			watermark = newest >= Long.MIN_VALUE + lateness ? newest - lateness : Long.MIN_VALUE;
+		}
+		Object key = left == null ? NULL_KEY : left;
+		if (spec.isSession())
+			addToSession(key, right, time);
+		else
+			addToWindows(key, right, time);
+		closeUntil(watermark);
+	}
+
+	private void addToWindows(Object key, R right, long time) {
+		long size = spec.getSize();
+		long slide = spec.getSlide();
+		long first = Math.floorDiv(time - size, slide) * slide + slide;
+		for (long start = first; start <= time; start += slide) {
+			if (start + size <= watermark)
+				continue;
+			accumulator.accept(window(key, start, start + size).container, right);
+		}
+	}
+
+	private Open<A> window(Object key, long start, long end) {
+		List<Open<A>> windows = open.computeIfAbsent(key, ignored -> new ArrayList<>(2));
+		int index = windows.size();
+		while (index > 0 && windows.get(index - 1).start >= start) {
+			if (windows.get(index - 1).start == start)
+				return windows.get(index - 1);
+			index--;
+		}
+		Open<A> window = new Open<>(key, start, end, supplier.get());
+		windows.add(index, window);
+		deadlines.add(new Deadline<>(end, sequence++, window));
+		return window;
+	}
+
+	// Sessions of one key never overlap, so a single pass in start order finds every session the event bridges.
+	// A late event still joins an open session it reaches; it is dropped only when it would start a closed one.
+	private void addToSession(Object key, R right, long time) {
+		long end = time + spec.getGap();
+		List<Open<A>> windows = open.getOrDefault(key, Collections.emptyList());
+		Open<A> target = null;
+		long start = time;
+		int index = 0;
+		while (index < windows.size() && windows.get(index).start < end) {
+			Open<A> window = windows.get(index);
+			if (window.end <= start) {
+				index++;
+				continue;
+			}
+			start = Math.min(start, window.start);
+			end = Math.max(end, window.end);
+			if (target == null) {
+				target = window;
+				index++;
+			} else {
+				target.container = combiner.apply(target.container, window.container);
+				window.closed = true;
+				windows.remove(index);
+			}
+		}
+		if (target == null) {
+			if (end <= watermark)
+				return;
+			target = new Open<>(key, start, end, supplier.get());
+			if (windows.isEmpty())
+				open.put(key, windows = new ArrayList<>(2));
+			windows.add(index, target);
+			deadlines.add(new Deadline<>(end, sequence++, target));
+		} else if (end != target.end) {
+			deadlines.add(new Deadline<>(end, sequence++, target));
+		}
+		target.start = start;
+		target.end = end;
+		accumulator.accept(target.container, right);
+	}
+
+	// Sessions leave a deadline behind every time they grow; only the one matching the current end counts.
+	private void closeUntil(long time) {
+		while (!deadlines.isEmpty() && deadlines.peek().at <= time) {
+			Deadline<A> deadline = deadlines.poll();
+			Open<A> window = deadline.window;
+			if (window.closed || window.end != deadline.at)
+				continue;
+			window.closed = true;
+			List<Open<A>> windows = open.get(window.key);
+			windows.remove(window);
+			if (windows.isEmpty())
+				open.remove(window.key);
+			ready.add(window);
+		}
+	}
+
+
+	private static final class Open<A> {
+		final Object key;
+		long start;
+		long end;
+		A container;
+		boolean closed;
+
+		Open(Object key, long start, long end, A container) {
+			this.key = key;
+			this.start = start;
+			this.end = end;
+			this.container = container;
+		}
+	}
+
+	private static final class Deadline<A> implements Comparable<Deadline<A>> {
+		final long at;
+		final long sequence;
+		final Open<A> window;
+
+		Deadline(long at, long sequence, Open<A> window) {
+			this.at = at;
+			this.sequence = sequence;
+			this.window = window;
+		}
+
+		@Override
+		public int compareTo(Deadline<A> other) {
+			int comparison = Long.compare(at, other.at);
+			return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+		}
+	}
+}
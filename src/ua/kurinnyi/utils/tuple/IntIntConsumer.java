@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface IntIntConsumer {
+	void accept(int left, int right);
+}
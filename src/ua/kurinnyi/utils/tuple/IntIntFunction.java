@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface IntIntFunction<T> {
+	T apply(int left, int right);
+}
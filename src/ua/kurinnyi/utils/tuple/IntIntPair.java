@@ -0,0 +1,70 @@
+package ua.kurinnyi.utils.tuple;
+
+
+import java.util.function.IntBinaryOperator;
+
+public final class IntIntPair {
+	private final int left;
+	private final int right;
+
+	public static IntIntPair of(int leftValue, int rightValue) {
+		return new IntIntPair(leftValue, rightValue);
+	}
+
+	private IntIntPair(int left, int right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public int getLeft() {
+		return left;
+	}
+
+	public int getRight() {
+		return right;
+	}
+
+	public IntIntPair swap() {
+		return IntIntPair.of(right, left);
+	}
+
+	public void use(IntIntConsumer consumer) {
+		consumer.accept(left, right);
+	}
+
+	public <T> T transform(IntIntFunction<? extends T> mapper) {
+		return mapper.apply(left, right);
+	}
+
+	public boolean test(IntIntPredicate predicate) {
+		return predicate.test(left, right);
+	}
+
+	public IntIntPair mapLeft(IntBinaryOperator mapper) {
+		return IntIntPair.of(mapper.applyAsInt(left, right), right);
+	}
+
+	public IntIntPair mapRight(IntBinaryOperator mapper) {
+		return IntIntPair.of(left, mapper.applyAsInt(left, right));
+	}
+
+	public Pair<Integer, Integer> boxed() {
+		return Pair.of(left, right);
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof IntIntPair)) return false;
+
+		IntIntPair otherPair = (IntIntPair) other;
+
+		return left == otherPair.left && right == otherPair.right;
+	}
+
+	@Override
+	public int hashCode() {
+		return PairHashes.hash(left, right);
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface IntIntPredicate {
+	boolean test(int left, int right);
+}
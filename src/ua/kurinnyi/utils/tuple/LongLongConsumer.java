@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongLongConsumer {
+	void accept(long left, long right);
+}
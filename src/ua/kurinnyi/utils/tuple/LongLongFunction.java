@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongLongFunction<T> {
+	T apply(long left, long right);
+}
@@ -0,0 +1,70 @@
+package ua.kurinnyi.utils.tuple;
+
+
+import java.util.function.LongBinaryOperator;
+
+public final class LongLongPair {
+	private final long left;
+	private final long right;
+
+	public static LongLongPair of(long leftValue, long rightValue) {
+		return new LongLongPair(leftValue, rightValue);
+	}
+
+	private LongLongPair(long left, long right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public long getLeft() {
+		return left;
+	}
+
+	public long getRight() {
+		return right;
+	}
+
+	public LongLongPair swap() {
+		return LongLongPair.of(right, left);
+	}
+
+	public void use(LongLongConsumer consumer) {
+		consumer.accept(left, right);
+	}
+
+	public <T> T transform(LongLongFunction<? extends T> mapper) {
+		return mapper.apply(left, right);
+	}
+
+	public boolean test(LongLongPredicate predicate) {
+		return predicate.test(left, right);
+	}
+
+	public LongLongPair mapLeft(LongBinaryOperator mapper) {
+		return LongLongPair.of(mapper.applyAsLong(left, right), right);
+	}
+
+	public LongLongPair mapRight(LongBinaryOperator mapper) {
+		return LongLongPair.of(left, mapper.applyAsLong(left, right));
+	}
+
+	public Pair<Long, Long> boxed() {
+		return Pair.of(left, right);
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof LongLongPair)) return false;
+
+		LongLongPair otherPair = (LongLongPair) other;
+
+		return left == otherPair.left && right == otherPair.right;
+	}
+
+	@Override
+	public int hashCode() {
+		return PairHashes.hash(left, right);
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongLongPredicate {
+	boolean test(long left, long right);
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongObjConsumer<R> {
+	void accept(long left, R right);
+}
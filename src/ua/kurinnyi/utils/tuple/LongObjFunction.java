@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongObjFunction<R, T> {
+	T apply(long left, R right);
+}
@@ -0,0 +1,77 @@
+package ua.kurinnyi.utils.tuple;
+
+
+import java.util.Objects;
+
+public final class LongObjPair<R> {
+	private final long left;
+	private final R right;
+	private int hash;
+
+	public static <R> LongObjPair<R> of(long leftValue, R rightValue) {
+		return new LongObjPair<>(leftValue, rightValue);
+	}
+
+	private LongObjPair(long left, R right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public long getLeft() {
+		return left;
+	}
+
+	public R getRight() {
+		return right;
+	}
+
+	public Pair<R, Long> swap() {
+		return Pair.of(right, left);
+	}
+
+	public void use(LongObjConsumer<? super R> consumer) {
+		consumer.accept(left, right);
+	}
+
+	public <T> T transform(LongObjFunction<? super R, ? extends T> mapper) {
+		return mapper.apply(left, right);
+	}
+
+	public boolean test(LongObjPredicate<? super R> predicate) {
+		return predicate.test(left, right);
+	}
+
+	public LongObjPair<R> mapLeft(LongObjToLongFunction<? super R> mapper) {
+		return LongObjPair.of(mapper.applyAsLong(left, right), right);
+	}
+
+	public <R1> LongObjPair<R1> mapRight(LongObjFunction<? super R, ? extends R1> mapper) {
+		return LongObjPair.of(left, mapper.apply(left, right));
+	}
+
+	public Pair<Long, R> boxed() {
+		return Pair.of(left, right);
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof LongObjPair)) return false;
+
+		LongObjPair<?> otherPair = (LongObjPair<?>) other;
+
+		return left == otherPair.left && hashCode() == otherPair.hashCode() && Objects.equals(right, otherPair.right);
+	}
+
+	// Cached like String's hash: a race only recomputes the same value, and 0 just means not computed yet.
+	@Override
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			result = PairHashes.hash(left, Objects.hashCode(right));
+			hash = result;
+		}
+		return result;
+	}
+}
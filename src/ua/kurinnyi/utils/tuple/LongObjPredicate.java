@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongObjPredicate<R> {
+	boolean test(long left, R right);
+}
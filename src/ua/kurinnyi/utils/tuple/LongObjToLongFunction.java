@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface LongObjToLongFunction<R> {
+	long applyAsLong(long left, R right);
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface ObjDoubleFunction<L, T> {
+	T apply(L left, double right);
+}
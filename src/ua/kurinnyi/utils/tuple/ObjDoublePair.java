@@ -0,0 +1,78 @@
+package ua.kurinnyi.utils.tuple;
+
+
+import java.util.Objects;
+import java.util.function.ObjDoubleConsumer;
+
+public final class ObjDoublePair<L> {
+	private final L left;
+	private final double right;
+	private int hash;
+
+	public static <L> ObjDoublePair<L> of(L leftValue, double rightValue) {
+		return new ObjDoublePair<>(leftValue, rightValue);
+	}
+
+	private ObjDoublePair(L left, double right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public L getLeft() {
+		return left;
+	}
+
+	public double getRight() {
+		return right;
+	}
+
+	public Pair<Double, L> swap() {
+		return Pair.of(right, left);
+	}
+
+	public void use(ObjDoubleConsumer<? super L> consumer) {
+		consumer.accept(left, right);
+	}
+
+	public <T> T transform(ObjDoubleFunction<? super L, ? extends T> mapper) {
+		return mapper.apply(left, right);
+	}
+
+	public boolean test(ObjDoublePredicate<? super L> predicate) {
+		return predicate.test(left, right);
+	}
+
+	public <L1> ObjDoublePair<L1> mapLeft(ObjDoubleFunction<? super L, ? extends L1> mapper) {
+		return ObjDoublePair.of(mapper.apply(left, right), right);
+	}
+
+	public ObjDoublePair<L> mapRight(ObjDoubleToDoubleFunction<? super L> mapper) {
+		return ObjDoublePair.of(left, mapper.applyAsDouble(left, right));
+	}
+
+	public Pair<L, Double> boxed() {
+		return Pair.of(left, right);
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof ObjDoublePair)) return false;
+
+		ObjDoublePair<?> otherPair = (ObjDoublePair<?>) other;
+
+		return Double.compare(right, otherPair.right) == 0 && hashCode() == otherPair.hashCode()
+				&& Objects.equals(left, otherPair.left);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			result = PairHashes.hash(Objects.hashCode(left), Double.doubleToLongBits(right));
+			hash = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface ObjDoublePredicate<L> {
+	boolean test(L left, double right);
+}
@@ -0,0 +1,6 @@
+package ua.kurinnyi.utils.tuple;
+
+@FunctionalInterface
+public interface ObjDoubleToDoubleFunction<L> {
+	double applyAsDouble(L left, double right);
+}
@@ -0,0 +1,22 @@
+package ua.kurinnyi.utils.tuple;
+
+// 31 * h(left) + h(right) puts small-integer pairs on neighbouring buckets; a 64-bit finalizer spreads them out.
+final class PairHashes {
+
+	private PairHashes() {
+	}
+
+	static int hash(long left, long right) {
+		long hash = mix(mix(left) + right);
+		return (int) (hash ^ hash >>> 32);
+	}
+
+	// Finalizer of MurmurHash3.
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ hash >>> 33;
+	}
+}
@@ -1,21 +1,44 @@
 package ua.kurinnyi.utils.stream;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import ua.kurinnyi.utils.tuple.Pair;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.entry;
 import static ua.kurinnyi.utils.tuple.Pair.of;
 
 public class BiStreamTest {
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	BiStream<String, Integer> initialBiStream;
 
 	@Before
@@ -54,6 +77,54 @@ public class BiStreamTest {
 		assertThat(entries).containsExactly(entry("a", 1), entry("a", 2), entry("b", 1), entry("b", 2));
 	}
 
+	@Test
+	public void shouldHandOverPairsInBatchesOfRequestedSize(){
+		List<List<Pair<Integer, Integer>>> batches = new ArrayList<>();
+
+		BiStream.map(IntStream.range(0, 7).boxed(), i -> -i).forEachBatch(3, batch -> batches.add(new ArrayList<>(batch)));
+
+		assertThat(batches).extracting(List::size).containsExactly(3, 3, 1);
+		assertThat(batches.get(2)).containsExactly(of(6, -6));
+	}
+
+	@Test
+	public void shouldHandOverColumnsInBatches(){
+		List<String> rows = new ArrayList<>();
+
+		initialBiStream.forEachBatch(3, String[]::new, Integer[]::new, (lefts, rights, size) -> {
+			for (int i = 0; i < size; i++)
+				rows.add(lefts[i] + rights[i]);
+			rows.add("|");
+		});
+
+		assertThat(rows).containsExactly("a1", "a2", "b1", "|", "b2", "|");
+	}
+
+	@Test
+	public void shouldFillBatchPerWorkerInParallel(){
+		LongAdder pairs = new LongAdder();
+
+		BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i).parallel()
+				.forEachBatch(100, batch -> pairs.add(batch.size()));
+
+		assertThat(pairs.sum()).isEqualTo(10_000);
+	}
+
+	@Test
+	public void shouldFlushIncompleteBatchAfterMaxLatency(){
+		List<Integer> batchSizes = new ArrayList<>();
+		Stream<Integer> slowSource = Stream.of(1, 2, 3).peek(i -> sleep(100));
+
+		BiStream.map(slowSource, i -> i).forEachBatch(10, 10, TimeUnit.MILLISECONDS, batch -> {
+			synchronized (batchSizes) {
+				batchSizes.add(batch.size());
+			}
+		});
+
+		assertThat(batchSizes.size()).isGreaterThan(1);
+		assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(3);
+	}
+
 	@Test
 	public void shouldReturnTrueWhenAllEntitiesMatchPredicate(){
 		boolean result = initialBiStream.allMatch((s, i) -> true);
@@ -120,6 +191,42 @@ public class BiStreamTest {
 		assertThat(toListOfEntries(biStream)).containsExactly(entry("a", -1), entry("a", -2), entry("b", -1), entry("b", -2));
 	}
 
+	@Test
+	public void shouldMapRightAsynchronouslyKeepingInputOrder(){
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			BiStream<String, Integer> biStream = initialBiStream.mapRightAsync((left, right) -> {
+				sleep(right == 1 ? 20 : 1);
+				return right * 10;
+			}, executor, 4);
+
+			assertThat(toListOfEntries(biStream))
+					.containsExactly(entry("a", 10), entry("a", 20), entry("b", 10), entry("b", 20));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldNotKeepMoreCallsInFlightThanAllowed(){
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxObserved = new AtomicInteger();
+
+		long count = BiStream.map(IntStream.range(0, 50).boxed(), i -> i)
+				.mapRightAsync((left, right) -> {
+					maxObserved.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+					return CompletableFuture.supplyAsync(() -> {
+						sleep(1);
+						inFlight.decrementAndGet();
+						return right;
+					});
+				}, 3)
+				.toStream().count();
+
+		assertThat(count).isEqualTo(50);
+		assertThat(maxObserved.get()).isLessThanOrEqualTo(3);
+	}
+
 	@Test
 	public void shouldSwapLeftAndRightPart(){
 		BiStream<Integer, String> biStream = initialBiStream.swap();
@@ -149,6 +256,49 @@ public class BiStreamTest {
 	}
 
 
+	@Test
+	public void shouldReduceRightValuesOfEachLeftValue(){
+		Map<String, Integer> result = initialBiStream.reduceByLeft(Integer::sum);
+
+		assertThat(result).containsOnly(entry("a", 3), entry("b", 3));
+	}
+
+	@Test
+	public void shouldReduceInEncounterOrderWhenParallelAndOrdered(){
+		Map<Integer, String> result = BiStream.map(IntStream.range(0, 10_000).boxed(), String::valueOf).parallel()
+				.mapLeft((left, right) -> left / 1000)
+				.reduceByLeft((value, newValue) -> value + "," + newValue);
+
+		String expected = IntStream.range(0, 1000).mapToObj(String::valueOf).collect(joining(","));
+		assertThat(result).hasSize(10).containsEntry(0, expected);
+	}
+
+	@Test
+	public void shouldGroupRightValuesOfEachLeftValueUsingCollector(){
+		Map<String, List<Integer>> result = initialBiStream.groupByLeft(toList());
+
+		assertThat(result).containsOnly(entry("a", asList(1, 2)), entry("b", asList(1, 2)));
+	}
+
+	@Test
+	public void shouldGroupConcurrentlyWhenParallelAndUnordered(){
+		Map<Integer, Set<Integer>> result = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i % 3)
+				.parallel().unordered()
+				.mapLeft((left, right) -> left % 2 == 0 ? null : 1)
+				.groupByLeft(toSet());
+
+		assertThat(result).containsOnly(entry(null, new HashSet<>(asList(0, 1, 2))), entry(1, new HashSet<>(asList(0, 1, 2))));
+	}
+
+	@Test
+	public void shouldCountPairsOfEachLeftValueInParallel(){
+		Map<Integer, Long> result = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i).parallel()
+				.mapLeft((left, right) -> left % 4)
+				.countByLeft();
+
+		assertThat(result).containsOnly(entry(0, 2500L), entry(1, 2500L), entry(2, 2500L), entry(3, 2500L));
+	}
+
 	@Test
 	public void shouldUseValueFromFirstListAsLeftAndFromSecondAsRight(){
 		List<String> list1 = Arrays.asList("a", "b");
@@ -178,6 +328,63 @@ public class BiStreamTest {
 		assertThat(toListOfEntries(biStream)).isEmpty();
 	}
 
+	@Test
+	public void shouldZipListsInParallelPreservingPositions(){
+		List<Integer> list1 = IntStream.range(0, 10_000).boxed().collect(toList());
+		List<Integer> list2 = IntStream.range(0, 10_000).map(i -> -i).boxed().collect(toList());
+
+		BiStream<Integer, Integer> biStream = BiStream.combineLists(list1, list2).parallel();
+
+		assertThat(biStream.allMatch((left, right) -> left == -right)).isTrue();
+	}
+
+	@Test
+	public void shouldKeepEncounterOrderOfZippedListsInParallel(){
+		List<Integer> list1 = IntStream.range(0, 10_000).boxed().collect(toList());
+		List<String> list2 = list1.stream().map(String::valueOf).collect(toList());
+
+		List<Integer> lefts = BiStream.combineLists(list1, list2).parallel()
+				.toStream().map(Pair::getLeft).collect(toList());
+
+		assertThat(lefts).isEqualTo(list1);
+	}
+
+	@Test
+	public void shouldZipListsWithoutRandomAccess(){
+		List<String> list1 = new LinkedList<>(asList("a", "b"));
+		List<String> list2 = new LinkedList<>(asList("c", "d"));
+
+		BiStream<String, String> biStream = BiStream.combineLists(list1, list2);
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("a", "c"), entry("b", "d"));
+	}
+
+	@Test
+	public void shouldCollectParallelBiStreamToMapUsingMergeFunction(){
+		Map<Integer, Integer> result = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> 1).parallel()
+				.mapLeft((left, right) -> left % 10)
+				.toMap(Integer::sum);
+
+		assertThat(result).hasSize(10).containsEntry(0, 1000).containsEntry(9, 1000);
+	}
+
+	@Test
+	public void shouldInvokeActionOnEachPairInParallel(){
+		LongAdder counter = new LongAdder();
+
+		BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i).parallel().forEach((left, right) -> counter.increment());
+
+		assertThat(counter.sum()).isEqualTo(10_000);
+	}
+
+	@Test
+	public void shouldSwitchBetweenParallelAndSequential(){
+		BiStream<String, Integer> biStream = initialBiStream.parallel();
+
+		assertThat(biStream.isParallel()).isTrue();
+		assertThat(biStream.sequential().isParallel()).isFalse();
+	}
+
 	@Test
 	public void shouldReturnBiStreamContainingValueFromMap(){
 		Map<String, String> map = new HashMap<String, String>(){{
@@ -264,6 +471,640 @@ public class BiStreamTest {
 				.containsExactly(entry("ab", "ba"), entry("ba", "ab"), entry("cd", "dc"), entry("dc", "cd"));
 	}
 
+	@Test
+	public void shouldReplayCachedPairsWithoutRecomputingUpstream(){
+		AtomicInteger mapperCalls = new AtomicInteger();
+
+		Supplier<BiStream<String, Integer>> cached = initialBiStream
+				.peek((left, right) -> mapperCalls.incrementAndGet())
+				.cache();
+
+		assertThat(cached.get().allMatch((left, right) -> right > 0)).isTrue();
+		assertThat(cached.get().toMap()).containsOnly(entry("a", 2), entry("b", 2));
+		assertThat(toListOfEntries(cached.get()))
+				.containsExactly(entry("a", 1), entry("a", 2), entry("b", 1), entry("b", 2));
+		assertThat(mapperCalls.get()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldReplayCachedPairsInParallel(){
+		Supplier<BiStream<Integer, Integer>> cached = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i)
+				.parallel()
+				.cache();
+
+		List<Integer> lefts = cached.get().toStream().map(Pair::getLeft).collect(toList());
+		Map<Integer, Long> counts = cached.get().mapLeft((left, right) -> left % 2).countByLeft();
+
+		assertThat(lefts).isEqualTo(IntStream.range(0, 10_000).boxed().collect(toList()));
+		assertThat(counts).containsOnly(entry(0, 5000L), entry(1, 5000L));
+	}
+
+	@Test
+	public void shouldRoundTripPairsThroughMappedFile() throws IOException {
+		Path file = temporaryFolder.newFile().toPath();
+
+		long written = BiStream.of(of("a", 1L), of(null, 2L), of("\u0436", null))
+				.toMappedFile(file, PairCodec.of(ValueCodec.strings(), ValueCodec.longs()));
+
+		assertThat(written).isEqualTo(3);
+		assertThat(toListOfEntries(BiStream.fromMappedFile(file, PairCodec.of(ValueCodec.strings(), ValueCodec.longs()))))
+				.containsExactly(entry("a", 1L), entry(null, 2L), entry("\u0436", null));
+	}
+
+	@Test
+	public void shouldWriteUnpairedSurrogatesAsReplacementCharacter() throws IOException {
+		Path file = temporaryFolder.newFile().toPath();
+		PairCodec<String, Long> codec = PairCodec.of(ValueCodec.strings(), ValueCodec.longs());
+
+		BiStream.of(of("a\uD800b", 1L), of("\uDC00\uD83D\uDE00", 2L)).toMappedFile(file, codec);
+
+		assertThat(toListOfEntries(BiStream.fromMappedFile(file, codec)))
+				.containsExactly(entry("a?b", 1L), entry("?\uD83D\uDE00", 2L));
+	}
+
+	@Test
+	public void shouldReadMappedFileInParallel() throws IOException {
+		Path file = temporaryFolder.newFile().toPath();
+		PairCodec<Long, Integer> codec = PairCodec.of(ValueCodec.longs(), ValueCodec.ints());
+		BiStream.map(IntStream.range(0, 20_000).boxed(), i -> i).mapLeft((left, right) -> (long) left)
+				.toMappedFile(file, codec);
+
+		BiStream<Long, Integer> restored = BiStream.fromMappedFile(file, codec).parallel();
+
+		assertThat(restored.toStream().map(Pair::getRight).collect(toList()))
+				.isEqualTo(IntStream.range(0, 20_000).boxed().collect(toList()));
+	}
+
+	@Test
+	public void shouldReadPagesInOrderUntilLastPage(){
+		Iterator<Page<Pair<String, Integer>>> pages = asList(
+				Page.of(asList(of("a", 1), of("b", 2))),
+				Page.<Pair<String, Integer>>of(Collections.emptyList()),
+				Page.last(singletonList(of("c", 3)))).iterator();
+
+		BiStream<String, Integer> biStream = BiStream.fromPages(pages::next, 2);
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("a", 1), entry("b", 2), entry("c", 3));
+	}
+
+	@Test
+	public void shouldSkipEmptyPagesWhenAdvancingOneByOne(){
+		Iterator<Page<Pair<Integer, String>>> pages = asList(
+				Page.<Pair<Integer, String>>of(Collections.emptyList()),
+				Page.last(singletonList(of(1, "a")))).iterator();
+
+		Optional<Pair<Integer, String>> first = BiStream.fromPages(pages::next, 2).findFirst();
+
+		assertThat(first).contains(of(1, "a"));
+	}
+
+	@Test
+	public void shouldRunCloseHandlersAfterPrimitiveTerminalOperation(){
+		AtomicInteger closed = new AtomicInteger();
+		LongAdder sum = new LongAdder();
+
+		initialBiStream.onClose(closed::incrementAndGet)
+				.mapToLongDouble((left, right) -> right, (left, right) -> right)
+				.forEach((left, right) -> sum.add(left));
+
+		assertThat(sum.sum()).isEqualTo(6);
+		assertThat(closed.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldFetchNoMorePagesThanPrefetchAhead(){
+		AtomicInteger fetched = new AtomicInteger();
+		Supplier<Page<Pair<Integer, Integer>>> pages = () -> {
+			int page = fetched.getAndIncrement();
+			return page == 100 ? null : Page.of(singletonList(of(page, page)));
+		};
+
+		Optional<Pair<Integer, Integer>> first = BiStream.fromPages(pages, 3).findFirst();
+		sleep(100);
+
+		assertThat(first).contains(of(0, 0));
+		assertThat(fetched.get()).isBetween(1, 5);
+	}
+
+	@Test
+	public void shouldStopFetchingWhenShortCircuitingTerminalReturns(){
+		Supplier<Page<Pair<Integer, Integer>>> endless = () -> Page.of(singletonList(of(1, 1)));
+
+		boolean found = BiStream.fromPages(endless, 2).anyMatch((left, right) -> left == 1);
+
+		assertThat(found).isTrue();
+		long deadline = System.currentTimeMillis() + 1000;
+		while (prefetchThreadAlive() && System.currentTimeMillis() < deadline)
+			sleep(10);
+		assertThat(prefetchThreadAlive()).isFalse();
+	}
+
+	@Test
+	public void shouldRunCloseHandlersOnceWhenTerminalOperationReturns(){
+		AtomicInteger closed = new AtomicInteger();
+		BiStream<String, Integer> biStream = initialBiStream.onClose(closed::incrementAndGet).filter((s, i) -> i == 1);
+
+		biStream.findFirst();
+		biStream.close();
+
+		assertThat(closed.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldCloseSourceStreamWithConvertedStreamOrTerminalOperation(){
+		AtomicInteger closed = new AtomicInteger();
+
+		Stream<Pair<String, Integer>> source = Stream.of(of("a", 1)).onClose(closed::incrementAndGet);
+		try (Stream<Pair<String, Integer>> stream = BiStream.fromStream(source).toStream()) {
+			assertThat(stream.count()).isEqualTo(1);
+		}
+		BiStream.map(Stream.of("a").onClose(closed::incrementAndGet), String::length).forEach((s, i) -> {});
+
+		assertThat(closed.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldRethrowFailureOfPageFetch(){
+		AtomicInteger fetched = new AtomicInteger();
+		Supplier<Page<Pair<Integer, Integer>>> pages = () -> {
+			if (fetched.incrementAndGet() == 3)
+				throw new IllegalStateException("page 3");
+			return Page.of(singletonList(of(fetched.get(), 0)));
+		};
+		List<Integer> seen = new ArrayList<>();
+
+		Throwable thrown = catchThrowable(() -> BiStream.fromPages(pages, 1).forEach((left, right) -> seen.add(left)));
+
+		assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessage("page 3");
+		assertThat(seen).containsExactly(1, 2);
+	}
+
+	@Test
+	public void shouldStopFetchingPagesWhenConsumerFails(){
+		AtomicInteger fetched = new AtomicInteger();
+		Supplier<Page<Pair<Integer, Integer>>> pages = () -> Page.of(singletonList(of(fetched.incrementAndGet(), 0)));
+
+		Throwable thrown = catchThrowable(() -> BiStream.fromPages(pages, 2).forEach((left, right) -> {
+			throw new IllegalArgumentException("stop");
+		}));
+		sleep(300);
+		int fetchedAfterFailure = fetched.get();
+		sleep(300);
+
+		assertThat(thrown).hasMessage("stop");
+		assertThat(fetched.get()).isEqualTo(fetchedAfterFailure);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectPagesWithoutPrefetch(){
+		BiStream.fromPages(() -> null, 0);
+	}
+
+	@Test
+	public void shouldGroupValuesOfEachKeyInIndex(){
+		PairIndex<String, Integer> index = BiStream.of(of("a", 1), of(null, 2), of("b", 3), of("a", 4), of(null, 5))
+				.toIndex();
+
+		assertThat(index.get("a")).containsExactly(1, 4);
+		assertThat(index.get(null)).containsExactly(2, 5);
+		assertThat(index.getFirst("b")).isEqualTo(3);
+		assertThat(index.get("c")).isEmpty();
+		assertThat(index.getFirst("c")).isNull();
+		assertThat(index.keyCount()).isEqualTo(3);
+		assertThat(index.size()).isEqualTo(5);
+	}
+
+	@Test
+	public void shouldBuildIndexInParallelKeepingEncounterOrderPerKey(){
+		PairIndex<Integer, Integer> index = BiStream.map(IntStream.range(0, 100_000).boxed(), i -> i).parallel()
+				.mapLeft((left, right) -> left % 1000)
+				.toIndex();
+
+		assertThat(index.keyCount()).isEqualTo(1000);
+		assertThat(index.get(999)).hasSize(100).startsWith(999, 1999).endsWith(99_999);
+		List<Integer> rights = new ArrayList<>();
+		index.forEach((left, right) -> rights.add(right));
+		assertThat(rights).hasSize(100_000).startsWith(0, 1000, 2000);
+	}
+
+	@Test
+	public void shouldKeepTopKByRightWithEncounterOrderForTies(){
+		List<Pair<String, Integer>> top = BiStream.of(of("a", 3), of("b", 7), of("c", 5), of("d", 7), of("e", 1))
+				.topKByRight(3, Comparator.naturalOrder());
+
+		assertThat(top).containsExactly(of("b", 7), of("d", 7), of("c", 5));
+	}
+
+	@Test
+	public void shouldKeepTopKByRightInParallel(){
+		List<Pair<Integer, Integer>> top = BiStream.map(IntStream.range(0, 100_000).boxed(), i -> i % 1000)
+				.parallel()
+				.topKByRight(3, Comparator.naturalOrder());
+
+		assertThat(top).containsExactly(of(999, 999), of(1999, 999), of(2999, 999));
+	}
+
+	@Test
+	public void shouldKeepTopKPerLeft(){
+		Map<Integer, List<Integer>> top = BiStream.map(IntStream.range(0, 1000).boxed(), i -> i)
+				.mapLeft((left, right) -> left % 3)
+				.parallel()
+				.topKPerLeft(2, Comparator.reverseOrder());
+
+		assertThat(top).containsOnly(entry(0, asList(0, 3)), entry(1, asList(1, 4)), entry(2, asList(2, 5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNegativeK(){
+		initialBiStream.topKByRight(-1, Comparator.naturalOrder());
+	}
+
+	@Test
+	public void shouldApproximateDistinctRightsPerLeft(){
+		Map<Integer, Long> distinct = BiStream.map(IntStream.range(0, 300_000).boxed(), i -> i % 90_000)
+				.mapLeft((left, right) -> left % 3 == 0 ? 0 : 1)
+				.parallel()
+				.approxDistinctRightPerLeft();
+
+		assertThat(distinct.get(0)).isBetween(28_500L, 31_500L);
+		assertThat(distinct.get(1)).isBetween(57_000L, 63_000L);
+	}
+
+	@Test
+	public void shouldCountFewDistinctRightsExactly(){
+		Map<String, Long> distinct = BiStream.of(of("a", 1), of("a", 2), of("a", 1), of("b", null), of("b", null))
+				.approxDistinctRightPerLeft();
+
+		assertThat(distinct).containsOnly(entry("a", 2L), entry("b", 1L));
+	}
+
+	@Test
+	public void shouldTellApartRightsWithEqualHashCodesUsingHasher(){
+		Supplier<BiStream<String, Long>> rights = () -> BiStream.map(LongStream.range(0, 1000).boxed(),
+				i -> i < 500 ? i : (i - 500) << 32).mapLeft((left, right) -> "a");
+
+		Map<String, Long> byHashCode = rights.get().approxDistinctRightPerLeft();
+		Map<String, Long> byHasher = rights.get().approxDistinctRightPerLeft(12, Long::longValue);
+
+		assertThat(byHashCode.get("a")).isBetween(475L, 525L);
+		assertThat(byHasher.get("a")).isBetween(950L, 1050L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnsupportedPrecision(){
+		initialBiStream.approxDistinctRightPerLeft(20);
+	}
+
+	@Test
+	public void shouldApproximateQuantilesByLeft(){
+		Map<Integer, double[]> quantiles = BiStream.map(IntStream.range(0, 200_000).boxed(), i -> i)
+				.mapLeft((left, right) -> left % 2)
+				.parallel()
+				.approxQuantilesByLeft(Integer::doubleValue, 0, 0.5, 0.9, 1);
+
+		assertThat(quantiles.get(0)[0]).isEqualTo(0);
+		assertThat(quantiles.get(0)[1]).isBetween(96_000.0, 104_000.0);
+		assertThat(quantiles.get(0)[2]).isBetween(176_000.0, 184_000.0);
+		assertThat(quantiles.get(1)[3]).isEqualTo(199_999);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectQuantileOutsideUnitRange(){
+		initialBiStream.approxQuantilesByLeft(Integer::doubleValue, 1.5);
+	}
+
+	@Test
+	public void shouldSampleDistinctPairsFromStream(){
+		List<Pair<Integer, Integer>> sample = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> -i)
+				.parallel()
+				.sampleReservoir(50);
+
+		assertThat(sample).hasSize(50).doesNotHaveDuplicates();
+		assertThat(sample).allMatch(pair -> pair.getRight() == -pair.getLeft() && pair.getLeft() < 10_000);
+	}
+
+	@Test
+	public void shouldSampleUniformlyAcrossParallelHalves(){
+		int[] hits = new int[2];
+		for (int run = 0; run < 200; run++)
+			for (Pair<Integer, Integer> pair : BiStream.map(IntStream.range(0, 2_000).boxed(), i -> i).parallel()
+					.sampleReservoir(10))
+				hits[pair.getLeft() < 1_000 ? 0 : 1]++;
+
+		assertThat(hits[0]).isBetween(800, 1_200);
+	}
+
+	@Test
+	public void shouldKeepWholeStreamWhenSampleIsLarger(){
+		assertThat(initialBiStream.sampleReservoir(10))
+				.containsOnly(of("a", 1), of("a", 2), of("b", 1), of("b", 2));
+	}
+
+	@Test
+	public void shouldKeepFirstPairForEachLeft(){
+		BiStream<String, Integer> biStream = BiStream.of(of("a", 1), of(null, 2), of("b", 3), of("a", 4), of(null, 5));
+
+		assertThat(toListOfEntries(biStream.distinctLeft()))
+				.containsExactly(entry("a", 1), entry(null, 2), entry("b", 3));
+	}
+
+	@Test
+	public void shouldDropRepeatedPairs(){
+		BiStream<String, Integer> biStream = BiStream.of(of("a", 1), of("a", 2), of("a", 1), of("b", null), of("b", null));
+
+		assertThat(toListOfEntries(biStream.distinctPairs()))
+				.containsExactly(entry("a", 1), entry("a", 2), entry("b", null));
+	}
+
+	@Test
+	public void shouldDropRepeatedPairsInUnorderedParallelStream(){
+		Map<Integer, Long> counts = BiStream.map(IntStream.range(0, 100_000).boxed(), i -> i % 7)
+				.mapLeft((left, right) -> left % 100)
+				.unordered()
+				.parallel()
+				.distinctPairs()
+				.countByLeft();
+
+		assertThat(counts).hasSize(100);
+		assertThat(counts.values()).containsOnly(7L);
+	}
+
+	@Test
+	public void shouldCountSizedStreamWithoutEvaluatingIt(){
+		AtomicInteger mapperCalls = new AtomicInteger();
+
+		long count = BiStream.combineLists(asList("a", "b", "c"), asList(1, 2, 3))
+				.mapRight((left, right) -> mapperCalls.incrementAndGet())
+				.count();
+
+		assertThat(count).isEqualTo(3);
+		assertThat(mapperCalls.get()).isZero();
+	}
+
+	@Test
+	public void shouldCountFilteredStream(){
+		long count = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i)
+				.parallel()
+				.filter((left, right) -> left % 3 == 0)
+				.count();
+
+		assertThat(count).isEqualTo(3334);
+	}
+
+	@Test
+	public void shouldCollectPairsToListInEncounterOrder(){
+		List<Pair<Integer, Integer>> pairs = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> -i)
+				.parallel()
+				.toList();
+
+		assertThat(pairs).hasSize(10_000);
+		assertThat(pairs.get(0)).isEqualTo(of(0, 0));
+		assertThat(pairs.get(9_999)).isEqualTo(of(9_999, -9_999));
+	}
+
+	@Test
+	public void shouldKeepDistinctThroughFilterAndSwap(){
+		Map<String, Integer> map = new HashMap<>();
+		map.put("a", 1);
+		map.put("b", 2);
+
+		Spliterator<Pair<Integer, String>> spliterator = BiStream.fromMap(map)
+				.filter((left, right) -> true)
+				.swap()
+				.toStream()
+				.spliterator();
+
+		assertThat(spliterator.hasCharacteristics(Spliterator.DISTINCT)).isTrue();
+		assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isFalse();
+	}
+
+	@Test
+	public void shouldKeepSizeThroughMappers(){
+		Spliterator<Pair<Integer, Integer>> spliterator = BiStream.combineLists(asList("a", "b"), asList(1, 2))
+				.mapLeft((left, right) -> right)
+				.mapRight((left, right) -> left)
+				.toStream()
+				.spliterator();
+
+		assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(2);
+		assertThat(spliterator.hasCharacteristics(Spliterator.DISTINCT)).isFalse();
+	}
+
+	@Test
+	public void shouldCollectSizedSourceIntoEqualMapInParallel(){
+		Map<Integer, Integer> map = new HashMap<>();
+		for (int i = 0; i < 10_000; i++)
+			map.put(i, -i);
+
+		Map<Integer, Integer> copy = BiStream.fromMap(map).parallel().toMap();
+
+		assertThat(copy).isEqualTo(map);
+	}
+
+	@Test
+	public void shouldRecordPerStageMetrics(){
+		List<StageMetrics> recorded = new ArrayList<>();
+
+		Map<Integer, Long> counts = BiStream.map(IntStream.range(0, 1000).boxed(), i -> i)
+				.parallel()
+				.instrumented("numbers", recorded::add)
+				.filter((left, right) -> left % 4 == 0)
+				.flatMapRight((left, right) -> Stream.of(right, right + 1))
+				.mapLeft((left, right) -> left % 2)
+				.countByLeft();
+
+		assertThat(counts).containsOnly(entry(0, 500L));
+		assertThat(recorded).extracting(StageMetrics::getStage)
+				.containsExactly("filter", "flatMapRight", "mapLeft", "groupByLeft");
+		assertThat(recorded).extracting(StageMetrics::getElementsIn).containsExactly(1000L, 250L, 500L, 500L);
+		assertThat(recorded).extracting(StageMetrics::getElementsOut).containsExactly(250L, 500L, 500L, 500L);
+		assertThat(recorded.get(0).getSelectivity()).isEqualTo(0.25);
+		assertThat(recorded.get(3).getNanos()).isPositive();
+		assertThat(recorded).extracting(StageMetrics::getPipeline).containsOnly("numbers");
+	}
+
+	@Test
+	public void shouldProcessEachLeftInOrderOnOneLane(){
+		Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+		Map<Integer, Set<String>> threads = new ConcurrentHashMap<>();
+
+		BiStream.map(IntStream.range(0, 20_000).boxed(), i -> i)
+				.mapLeft((left, right) -> left % 50)
+				.partitionByLeft(4, 128, (left, right) -> {
+					seen.computeIfAbsent(left, key -> Collections.synchronizedList(new ArrayList<>())).add(right);
+					threads.computeIfAbsent(left, key -> ConcurrentHashMap.newKeySet())
+							.add(Thread.currentThread().getName());
+				});
+
+		assertThat(seen).hasSize(50);
+		seen.forEach((left, rights) -> assertThat(rights)
+				.isEqualTo(IntStream.range(0, 400).mapToObj(i -> i * 50 + left).collect(toList())));
+		assertThat(threads.values()).allMatch(names -> names.size() == 1);
+	}
+
+	@Test
+	public void shouldRethrowLaneFailureAfterShutdown(){
+		AtomicInteger processed = new AtomicInteger();
+
+		Throwable thrown = catchThrowable(() -> BiStream.map(IntStream.range(0, 100_000).boxed(), i -> i)
+				.partitionByLeft(2, 16, (left, right) -> {
+					if (processed.incrementAndGet() == 100)
+						throw new IllegalStateException("boom");
+				}));
+
+		assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+		assertThat(Thread.getAllStackTraces().keySet().stream().map(Thread::getName))
+				.filteredOn(name -> name.startsWith("BiStream-lane-"))
+				.isEmpty();
+	}
+
+	@Test
+	public void shouldZipLazyStreamsUpToTheShorterOne(){
+		BiStream<Integer, String> zipped = BiStream.zip(Stream.iterate(1, i -> i * 2), Stream.of("a", "b", "c"));
+
+		assertThat(toListOfEntries(zipped)).containsExactly(entry(1, "a"), entry(2, "b"), entry(4, "c"));
+	}
+
+	@Test
+	public void shouldZipStreamsThatSplitAtDifferentPoints(){
+		Stream<Integer> lefts = Stream.concat(IntStream.range(0, 1000).boxed(), IntStream.range(1000, 10_000).boxed());
+		Stream<Integer> rights = IntStream.range(0, 10_000).boxed();
+
+		List<Pair<Integer, Integer>> zipped = BiStream.zip(lefts, rights).parallel().toList();
+
+		assertThat(zipped).hasSize(10_000);
+		assertThat(zipped).allMatch(pair -> pair.getLeft().equals(pair.getRight()));
+	}
+
+	@Test
+	public void shouldFilterAndMapWholeChunks(){
+		List<Integer> chunkSizes = new ArrayList<>();
+		List<String> rights = new ArrayList<>();
+
+		BiStream.map(IntStream.range(0, 3000).boxed(), i -> i * 10)
+				.chunked(Integer[]::new, Integer[]::new)
+				.filterBatch((lefts, values, size, matches) -> {
+					for (int i = 0; i < size; i++)
+						matches[i] = lefts[i] % 2 == 0;
+				})
+				.mapRightBatch(String[]::new, (lefts, values, size, results) -> {
+					for (int i = 0; i < size; i++)
+						results[i] = lefts[i] + ":" + values[i];
+				})
+				.forEachBatch((lefts, values, size) -> {
+					chunkSizes.add(size);
+					rights.addAll(asList(values).subList(0, size));
+				});
+
+		assertThat(chunkSizes).containsExactly(512, 512, 476);
+		assertThat(rights).hasSize(1500).startsWith("0:0", "2:20").endsWith("2998:29980");
+	}
+
+	@Test
+	public void shouldMixPerElementAndChunkedStagesInParallel(){
+		Map<Integer, Integer> result = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i)
+				.parallel()
+				.chunked(16, Integer[]::new, Integer[]::new)
+				.filter((left, right) -> left % 5 == 0)
+				.mapRight(Integer[]::new, (left, right) -> right * 2)
+				.unchunked()
+				.toMap();
+
+		assertThat(result).hasSize(2000).containsEntry(9995, 19990).doesNotContainKey(9996);
+	}
+
+	@Test
+	public void shouldSortThroughSpilledRunsKeepingEncounterOrderOfEqualKeys() throws IOException {
+		PairCodec<Long, Integer> codec = PairCodec.of(ValueCodec.longs(), ValueCodec.ints());
+
+		List<Pair<Long, Integer>> sorted = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i)
+				.mapLeft((left, right) -> (long) (left * 7919 % 1000))
+				.sortByLeftExternally(Comparator.naturalOrder(), codec, 1000)
+				.toList();
+
+		assertThat(sorted).hasSize(10_000);
+		for (int i = 1; i < sorted.size(); i++) {
+			Pair<Long, Integer> previous = sorted.get(i - 1);
+			Pair<Long, Integer> current = sorted.get(i);
+			assertThat(previous.getLeft()).isLessThanOrEqualTo(current.getLeft());
+			if (previous.getLeft().equals(current.getLeft()))
+				assertThat(previous.getRight()).isLessThan(current.getRight());
+		}
+		try (Stream<Path> leftovers = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+			assertThat(leftovers.filter(file -> file.getFileName().toString().startsWith("bistream-run-"))).isEmpty();
+		}
+	}
+
+	@Test
+	public void shouldGroupThroughSpilledRuns(){
+		PairCodec<String, Integer> codec = PairCodec.of(ValueCodec.strings(), ValueCodec.ints());
+
+		Map<String, Long> counts = BiStream.map(IntStream.range(0, 5000).boxed(), i -> i)
+				.mapLeft((left, right) -> "key" + left % 7)
+				.groupByLeftExternally(Comparator.naturalOrder(), codec, 300, Collectors.counting())
+				.toMap();
+
+		assertThat(counts).hasSize(7).containsEntry("key0", 715L).containsEntry("key6", 714L);
+	}
+
+	@Test
+	public void shouldEmitTumblingWindowsAsTheyClose(){
+		List<String> emitted = new ArrayList<>();
+		BiStream<String, Window<Long>> windows = BiStream.of(of("a", 1L), of("b", 4L), of("a", 9L), of("a", 10L),
+				of("b", 12L), of("a", 25L))
+				.peek((left, right) -> emitted.add("in " + right))
+				.windowByLeft(time -> time, WindowSpec.tumbling(10), Collectors.counting())
+				.peek((left, window) -> emitted.add(left + window.getStart()));
+
+		assertThat(toListOfEntries(windows)).containsExactly(entry("a", Window.of(0, 10, 2L)),
+				entry("b", Window.of(0, 10, 1L)), entry("a", Window.of(10, 20, 1L)), entry("b", Window.of(10, 20, 1L)),
+				entry("a", Window.of(20, 30, 1L)));
+		assertThat(emitted).startsWith("in 1", "in 4", "in 9", "in 10", "a0", "b0", "in 12", "in 25", "a10");
+	}
+
+	@Test
+	public void shouldPutEventIntoEveryOverlappingSlidingWindow(){
+		Map<Long, Long> sums = BiStream.of(of("a", 3L), of("a", 7L), of("a", 12L))
+				.windowByLeft(time -> time, WindowSpec.sliding(10, 5), Collectors.summingLong(time -> time))
+				.toStream()
+				.collect(Collectors.toMap(pair -> pair.getRight().getStart(), pair -> pair.getRight().getValue()));
+
+		assertThat(sums).containsOnly(entry(-5L, 3L), entry(0L, 10L), entry(5L, 19L), entry(10L, 12L));
+	}
+
+	@Test
+	public void shouldMergeSessionsBridgedByLateEvent(){
+		BiStream<String, Window<List<Long>>> sessions = BiStream.of(of("a", 1L), of("a", 9L), of("a", 5L),
+				of("b", 2L), of("a", 30L))
+				.windowByLeft(time -> time, WindowSpec.session(5).allowingLateness(5), toList());
+
+		assertThat(toListOfEntries(sessions)).containsExactly(entry("b", Window.of(2, 7, singletonList(2L))),
+				entry("a", Window.of(1, 14, asList(1L, 9L, 5L))), entry("a", Window.of(30, 35, singletonList(30L))));
+	}
+
+	@Test
+	public void shouldExtendOpenSessionWithEventBehindWatermark(){
+		BiStream<String, Window<List<Long>>> sessions = BiStream.of(of("a", 0L), of("a", 9L), of("a", 18L),
+				of("a", 27L), of("a", -5L))
+				.windowByLeft(time -> time, WindowSpec.session(10).allowingLateness(20), toList());
+
+		assertThat(toListOfEntries(sessions)).containsExactly(entry("a", Window.of(-5, 37, asList(0L, 9L, 18L, 27L, -5L))));
+	}
+
+	@Test
+	public void shouldDropEventsForClosedWindows(){
+		Map<String, Window<Long>> windows = BiStream.of(of("a", 12L), of("a", 3L), of("a", 14L))
+				.windowByLeft(time -> time, WindowSpec.tumbling(10), Collectors.counting())
+				.toMap();
+
+		assertThat(windows).containsOnly(entry("a", Window.of(10, 20, 2L)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectEmptyWindows(){
+		WindowSpec.sliding(10, 0);
+	}
+
 	@Test
 	public void shouldReturnEmptyOptionalOnEmptyStream(){
 		Optional<Pair<String, String>> pair =  BiStream.of(of("a", "b")).filter((left, right) -> left == right).findFirst();
@@ -279,11 +1120,173 @@ public class BiStreamTest {
 		assertThat(pair).contains(of("a", "b"));
 	}
 
+	@Test
+	public void shouldJoinPairsWithSameLeftValue(){
+		BiStream<String, String> other = BiStream.of(of("a", "x"), of("c", "y"));
+
+		BiStream<String, Pair<Integer, String>> biStream = initialBiStream.innerJoin(other);
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("a", of(1, "x")), entry("a", of(2, "x")));
+	}
+
+	@Test
+	public void shouldProduceMatchForEachDuplicatedKeyOfJoinedStream(){
+		BiStream<String, String> other = BiStream.of(of("b", "x"), of("b", "y"));
+
+		BiStream<String, String> biStream = initialBiStream.innerJoin(other, (right, otherRight) -> otherRight + right);
+
+		assertThat(toListOfEntries(biStream))
+				.containsExactly(entry("b", "x1"), entry("b", "y1"), entry("b", "x2"), entry("b", "y2"));
+	}
+
+	@Test
+	public void shouldJoinWithMap(){
+		Map<String, String> map = Collections.singletonMap("b", "x");
+
+		BiStream<String, String> biStream = initialBiStream.innerJoin(map, (right, value) -> value + right);
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("b", "x1"), entry("b", "x2"));
+	}
+
+	@Test
+	public void shouldKeepUnmatchedPairsOnLeftOuterJoin(){
+		BiStream<String, String> other = BiStream.of(of("a", "x"));
+
+		BiStream<String, String> biStream = initialBiStream.leftOuterJoin(other, (right, otherRight) -> otherRight + right);
+
+		assertThat(toListOfEntries(biStream))
+				.containsExactly(entry("a", "x1"), entry("a", "x2"), entry("b", "null1"), entry("b", "null2"));
+	}
+
+	@Test
+	public void shouldMergeJoinSortedStreamsMatchingEachKeyGroup(){
+		BiStream<Integer, String> sorted = BiStream.of(of(1, "a"), of(2, "b"), of(2, "c"), of(4, "d"));
+		BiStream<Integer, String> otherSorted = BiStream.of(of(0, "w"), of(2, "x"), of(2, "y"), of(3, "z"), of(4, "v"));
+
+		BiStream<Integer, String> biStream = sorted.mergeJoin(otherSorted, Comparator.naturalOrder(), String::concat);
+
+		assertThat(toListOfEntries(biStream))
+				.containsExactly(entry(2, "bx"), entry(2, "by"), entry(2, "cx"), entry(2, "cy"), entry(4, "dv"));
+	}
+
+	@Test
+	public void shouldMergeJoinWithoutReadingOtherStreamPastLastKey(){
+		BiStream<Integer, Integer> endless = BiStream.map(Stream.iterate(0, i -> i + 1), i -> -i);
+
+		Map<Integer, Pair<String, Integer>> result = BiStream.of(of(3, "a"), of(5, "b"))
+				.mergeJoin(endless, Comparator.naturalOrder())
+				.toMap();
+
+		assertThat(result).containsOnly(entry(3, of("a", -3)), entry(5, of("b", -5)));
+	}
+
+	@Test
+	public void shouldKeepOnlyPairsWithLeftValuePresentInOtherStream(){
+		BiStream<String, Integer> biStream = initialBiStream.semiJoin(BiStream.of(of("b", "x"), of("b", "y")));
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("b", 1), entry("b", 2));
+	}
+
+	@Test
+	public void shouldNotReadJoinedStreamBeforeTerminalOperation(){
+		AtomicInteger read = new AtomicInteger();
+		BiStream<String, String> other = BiStream.of(of("b", "x")).peek((left, right) -> read.incrementAndGet());
+		BiStream<String, String> keys = BiStream.of(of("b", "y")).peek((left, right) -> read.incrementAndGet());
+
+		BiStream<String, Integer> joined = initialBiStream.innerJoin(other, (right, value) -> right).semiJoin(keys);
+
+		assertThat(read.get()).isZero();
+		assertThat(toListOfEntries(joined)).containsExactly(entry("b", 1), entry("b", 2));
+		assertThat(read.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldKeepEveryPairWhoseLeftWasPutIntoBloomFilter(){
+		BloomFilter<Integer> filter = BiStream.map(IntStream.range(0, 100_000).boxed(), i -> i).parallel()
+				.mapLeft((left, right) -> left * 2)
+				.toLeftBloomFilter(100_000, 0.01, Integer::longValue);
+
+		long kept = BiStream.map(IntStream.range(0, 200_000).boxed(), i -> i)
+				.filterLeftMightContain(filter)
+				.count();
+
+		assertThat(kept).isBetween(100_000L, 101_500L);
+	}
+
+	@Test
+	public void shouldConfirmBloomFilterMatchesExactly(){
+		BloomFilter<String> filter = BiStream.of(of("b", "x")).toLeftBloomFilter(1, 0.5);
+		List<String> confirmed = new ArrayList<>();
+
+		BiStream<String, Integer> biStream = initialBiStream.filterLeftMightContain(filter, left -> {
+			confirmed.add(left);
+			return "b".equals(left);
+		});
+
+		assertThat(toListOfEntries(biStream)).containsExactly(entry("b", 1), entry("b", 2));
+		assertThat(confirmed).contains("b", "b");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectCertainFalsePositiveRate(){
+		BloomFilter.create(10, 1.0);
+	}
+
+	@Test
+	public void shouldProbeJoinedStreamInParallel(){
+		Map<Integer, String> names = BiStream.map(IntStream.range(0, 100).boxed(), String::valueOf).toMap();
+
+		long matched = BiStream.map(IntStream.range(0, 10_000).boxed(), i -> i).parallel()
+				.mapLeft((left, right) -> left % 200)
+				.innerJoin(names)
+				.toStream()
+				.filter(pair -> pair.getLeft().toString().equals(pair.getRight().getRight()))
+				.count();
+
+		assertThat(matched).isEqualTo(5_000);
+	}
+
+	@Test
+	public void shouldStopPullingValuesWhenMatchFound(){
+		boolean result = BiStream.of(of("a", "b"))
+				.flatMapRight((left, right) -> Stream.iterate(1, i -> i + 1))
+				.anyMatch((left, right) -> right == 3);
+
+		assertThat(result).isTrue();
+	}
+
+	@Test
+	public void shouldKeepParallelismOfInitialStream(){
+		BiStream<String, String> biStream = BiStream.map(Stream.of("a", "b").parallel(), String::toUpperCase);
+
+		assertThat(biStream.mapRight((left, right) -> right + left).toStream().isParallel()).isTrue();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldThrowExceptionWhenBiStreamIsReused(){
+		initialBiStream.filter((left, right) -> true);
+
+		initialBiStream.forEach((left, right) -> {});
+	}
+
 	private <T, R> List<Map.Entry<T, R>> toListOfEntries(BiStream<T, R> biStream){
 		return biStream.toStream().map(pair -> entry(pair.getLeft(), pair.getRight())).collect(toList());
 	}
 
 
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static boolean prefetchThreadAlive() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.anyMatch(thread -> thread.getName().equals("BiStream-page-prefetch"));
+	}
+
 	private BiStream<String, Integer> getEmptyBiStream() {
 		Stream<String> stream = Stream.empty();
 
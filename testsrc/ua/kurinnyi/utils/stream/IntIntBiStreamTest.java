@@ -0,0 +1,64 @@
+package ua.kurinnyi.utils.stream;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static ua.kurinnyi.utils.tuple.Pair.of;
+
+public class IntIntBiStreamTest {
+
+	@Test
+	public void shouldFilterAndMapValues(){
+		Map<Integer, Integer> result = IntIntBiStream.map(IntStream.range(0, 4), left -> left * left)
+				.filter((left, right) -> left > 1)
+				.mapLeft((left, right) -> left + right)
+				.mapRight((left, right) -> -right)
+				.toMap();
+
+		assertThat(result).containsOnly(entry(6, -4), entry(12, -9));
+	}
+
+	@Test
+	public void shouldSwapLeftAndRightPart(){
+		Map<Integer, Integer> result = IntIntBiStream.map(IntStream.of(1, 2), left -> left + 10).swap().toMap();
+
+		assertThat(result).containsOnly(entry(11, 1), entry(12, 2));
+	}
+
+	@Test
+	public void shouldUseFunctionToHandleDuplicationOfKeysInParallel(){
+		Map<Integer, Integer> result = IntIntBiStream.map(IntStream.range(0, 10_000), left -> 1).parallel()
+				.mapLeft((left, right) -> left % 10)
+				.toMap(Integer::sum);
+
+		assertThat(result).hasSize(10).containsEntry(9, 1000);
+	}
+
+	@Test
+	public void shouldConvertFromAndToBiStream(){
+		Map<Integer, Integer> result = BiStream.of(of("ab", "c"))
+				.mapToIntInt((left, right) -> left.length(), (left, right) -> right.length())
+				.boxed()
+				.toMap();
+
+		assertThat(result).containsOnly(entry(2, 1));
+	}
+
+	@Test
+	public void shouldLookUpAllValuesOfKeyInIndex(){
+		IntIntIndex index = IntIntBiStream.map(IntStream.range(0, 10_000), right -> right).parallel()
+				.mapLeft((left, right) -> left % 100)
+				.toIndex();
+
+		assertThat(index.keyCount()).isEqualTo(100);
+		assertThat(index.size()).isEqualTo(10_000);
+		assertThat(index.get(7)).hasSize(100).startsWith(7, 107, 207);
+		assertThat(index.getFirst(99, -1)).isEqualTo(99);
+		assertThat(index.getFirst(100, -1)).isEqualTo(-1);
+		assertThat(index.get(-5)).isEmpty();
+	}
+}
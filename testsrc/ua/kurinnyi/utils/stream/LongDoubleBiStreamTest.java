@@ -0,0 +1,98 @@
+package ua.kurinnyi.utils.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static ua.kurinnyi.utils.tuple.Pair.of;
+
+public class LongDoubleBiStreamTest {
+
+	@Test
+	public void shouldFilterAndMapValues(){
+		Map<Long, Double> result = LongDoubleBiStream.map(LongStream.range(0, 4), left -> left / 2.0)
+				.filter((left, right) -> right >= 1)
+				.mapLeft((left, right) -> -left)
+				.mapRight((left, right) -> right * 2)
+				.toMap();
+
+		assertThat(result).containsOnly(entry(-2L, 2.0), entry(-3L, 3.0));
+	}
+
+	@Test
+	public void shouldUseFunctionToHandleDuplicationOfKeys(){
+		Map<Long, Double> result = LongDoubleBiStream.map(LongStream.range(0, 4), left -> 1.5)
+				.mapLeft((left, right) -> 0)
+				.toMap(Double::sum);
+
+		assertThat(result).containsOnly(entry(0L, 6.0));
+	}
+
+	@Test
+	public void shouldInvokeActionOnEachPairInParallel(){
+		DoubleAdder sum = new DoubleAdder();
+
+		LongDoubleBiStream.map(LongStream.range(0, 10_000), left -> 1.0).parallel()
+				.forEach((left, right) -> sum.add(right));
+
+		assertThat(sum.sum()).isEqualTo(10_000.0);
+	}
+
+	@Test
+	public void shouldConvertFromAndToBiStream(){
+		Map<Double, Long> result = BiStream.of(of("a", 1.5))
+				.mapToLongDouble((left, right) -> left.length(), (left, right) -> right)
+				.swap()
+				.toMap();
+
+		assertThat(result).containsOnly(entry(1.5, 1L));
+	}
+
+	@Test
+	public void shouldFilterAndMapPrimitiveChunks(){
+		List<Integer> chunkSizes = new ArrayList<>();
+		AtomicInteger closed = new AtomicInteger();
+
+		Map<Long, Double> result = LongDoubleBiStream.map(LongStream.range(0, 3000).onClose(closed::incrementAndGet),
+				left -> left / 2.0)
+				.chunked()
+				.filterBatch((lefts, rights, size, matches) -> {
+					chunkSizes.add(size);
+					for (int i = 0; i < size; i++)
+						matches[i] = lefts[i] % 2 == 0;
+				})
+				.mapRightBatch((lefts, rights, size, results) -> {
+					for (int i = 0; i < size; i++)
+						results[i] = rights[i] * 4;
+				})
+				.unchunked()
+				.toMap();
+
+		assertThat(chunkSizes).containsExactly(1024, 1024, 952);
+		assertThat(result).hasSize(1500).containsEntry(2998L, 5996.0).doesNotContainKey(2999L);
+		assertThat(closed.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldMixPerElementAndPrimitiveChunkedStagesInParallel(){
+		DoubleAdder sum = new DoubleAdder();
+
+		LongDoubleBiStream.map(LongStream.range(0, 10_000), left -> 1.0).parallel()
+				.chunked(16)
+				.filter((left, right) -> left % 5 == 0)
+				.mapRight((left, right) -> right * 2)
+				.forEachBatch((lefts, rights, size) -> {
+					for (int i = 0; i < size; i++)
+						sum.add(rights[i]);
+				});
+
+		assertThat(sum.sum()).isEqualTo(4000.0);
+	}
+}
@@ -0,0 +1,103 @@
+package ua.kurinnyi.utils.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static ua.kurinnyi.utils.tuple.Pair.of;
+
+public class LongObjBiStreamTest {
+
+	@Test
+	public void shouldFilterValuesByPredicate(){
+		Map<Long, String> result = LongObjBiStream.map(LongStream.range(0, 4), String::valueOf)
+				.filter((left, right) -> left % 2 == 0)
+				.toMap();
+
+		assertThat(result).containsOnly(entry(0L, "0"), entry(2L, "2"));
+	}
+
+	@Test
+	public void shouldChangeLeftAndRightPartsInAccordanceToFunctions(){
+		List<String> result = new ArrayList<>();
+
+		LongObjBiStream.map(LongStream.of(1, 2), String::valueOf)
+				.mapLeft((left, right) -> left * 10)
+				.mapRight((left, right) -> right + ":" + left)
+				.forEach((left, right) -> result.add(right));
+
+		assertThat(result).containsExactly("1:10", "2:20");
+	}
+
+	@Test
+	public void shouldUseFunctionToHandleDuplicationOfKeys(){
+		Map<Long, String> result = LongObjBiStream.map(LongStream.range(0, 4), String::valueOf)
+				.mapLeft((left, right) -> left % 2)
+				.toMap((value, newValue) -> value + newValue);
+
+		assertThat(result).containsOnly(entry(0L, "02"), entry(1L, "13"));
+	}
+
+	@Test
+	public void shouldZipValuesWithTheirIndex(){
+		Map<Long, String> result = BiStream.zipWithIndex(Stream.of("a", "b", "c")).toMap();
+
+		assertThat(result).containsOnly(entry(0L, "a"), entry(1L, "b"), entry(2L, "c"));
+	}
+
+	@Test
+	public void shouldKeepIndicesWhenZippedInParallel(){
+		PairBuffer<Long, Integer> columns = BiStream.zipWithIndex(IntStream.range(0, 10_000).boxed())
+				.parallel()
+				.filter((left, right) -> left % 3 == 0)
+				.toColumns();
+
+		assertThat(columns.size()).isEqualTo(3334);
+		for (int i = 0; i < columns.size(); i++)
+			assertThat(columns.getLeftAsLong(i)).isEqualTo(columns.getRight(i).longValue());
+	}
+
+	@Test
+	public void shouldSwapLeftAndRightPart(){
+		Map<String, Long> result = LongObjBiStream.map(LongStream.of(1), String::valueOf).swap().toMap();
+
+		assertThat(result).containsOnly(entry("1", 1L));
+	}
+
+	@Test
+	public void shouldConvertFromAndToBiStream(){
+		Map<Long, String> result = BiStream.of(of("1", "a"), of("2", "b"))
+				.mapLeftToLong((left, right) -> Long.parseLong(left))
+				.boxed()
+				.toMap();
+
+		assertThat(result).containsOnly(entry(1L, "a"), entry(2L, "b"));
+	}
+
+	@Test
+	public void shouldCollectValuesToMapInParallel(){
+		Map<Long, Long> result = LongObjBiStream.map(LongStream.range(0, 10_000).parallel(), left -> 1L)
+				.mapLeft((left, right) -> left % 10)
+				.toMap(Long::sum);
+
+		assertThat(result).hasSize(10).containsEntry(0L, 1000L);
+	}
+
+	@Test
+	public void shouldLookUpValuesByLongKeyInIndex(){
+		LongObjIndex<String> index = LongObjBiStream.map(LongStream.range(0, 6), String::valueOf)
+				.mapLeft((left, right) -> left % 2 * 1_000_000_000_000L)
+				.toIndex();
+
+		assertThat(index.get(1_000_000_000_000L)).containsExactly("1", "3", "5");
+		assertThat(index.getFirst(0L)).isEqualTo("0");
+		assertThat(index.containsKey(1L)).isFalse();
+	}
+}
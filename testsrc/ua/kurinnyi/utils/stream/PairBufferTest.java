@@ -0,0 +1,86 @@
+package ua.kurinnyi.utils.stream;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static ua.kurinnyi.utils.tuple.Pair.of;
+
+public class PairBufferTest {
+
+	@Test
+	public void shouldKeepPairsInEncounterOrder(){
+		PairBuffer<String, Integer> buffer = BiStream.of(of("b", 1), of("a", 2)).toColumns();
+
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.getLeft(0)).isEqualTo("b");
+		assertThat(buffer.getRight(1)).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldSortByLeftMovingRightValuesTogether(){
+		PairBuffer<String, Integer> buffer = BiStream.of(of("c", 1), of("a", 2), of("b", 3), of("a", 4))
+				.toColumns()
+				.sortByLeft();
+
+		assertThat(buffer.stream().toMap((value, newValue) -> value * 10 + newValue))
+				.containsOnly(entry("a", 24), entry("b", 3), entry("c", 1));
+		assertThat(buffer.getLeft(0)).isEqualTo("a");
+		assertThat(buffer.getRight(0)).isEqualTo(2);
+		assertThat(buffer.getRight(1)).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldSortLargeBufferInParallel(){
+		List<Integer> values = new Random(7).ints(100_000, 0, 1000).boxed().collect(toList());
+
+		PairBuffer<Integer, Integer> buffer = BiStream.map(values.stream(), value -> -value).parallel()
+				.toColumns()
+				.sortByRight(Comparator.reverseOrder());
+
+		assertThat(IntStream.range(1, buffer.size()).allMatch(i -> buffer.getLeft(i - 1) <= buffer.getLeft(i))).isTrue();
+		assertThat(IntStream.range(0, buffer.size()).allMatch(i -> buffer.getLeft(i) == -buffer.getRight(i))).isTrue();
+	}
+
+	@Test
+	public void shouldFindFirstIndexOfLeftValue(){
+		PairBuffer<Integer, String> buffer = BiStream.of(of(5, "a"), of(1, "b"), of(3, "c"), of(3, "d"))
+				.toColumns()
+				.sortByLeft();
+
+		assertThat(buffer.binarySearchLeft(3)).isEqualTo(1);
+		assertThat(buffer.binarySearchLeft(4)).isEqualTo(-4);
+		assertThat(buffer.binarySearchLeft(0)).isEqualTo(-1);
+	}
+
+	@Test
+	public void shouldReportSizeAndSortingOfStreamedPairs(){
+		PairBuffer<Integer, String> buffer = BiStream.of(of(2, "a"), of(1, "b")).toColumns();
+
+		BiSpliterator<Integer, String> unsorted = buffer.stream().consume();
+		BiSpliterator<Integer, String> sorted = buffer.sortByLeft().stream().consume();
+
+		assertThat(unsorted.getExactSizeIfKnown()).isEqualTo(2);
+		assertThat(unsorted.hasCharacteristics(Spliterator.SORTED)).isFalse();
+		assertThat(sorted.hasCharacteristics(Spliterator.SORTED | Spliterator.SIZED)).isTrue();
+	}
+
+	@Test
+	public void shouldStorePrimitiveValuesOfPrimitiveStreams(){
+		PairBuffer<Long, Double> buffer = LongDoubleBiStream.map(LongStream.of(3, 1, 2), left -> left * 1.5)
+				.toColumns()
+				.sortByLeft();
+
+		assertThat(buffer.getLeftAsLong(0)).isEqualTo(1L);
+		assertThat(buffer.getRightAsDouble(2)).isEqualTo(4.5);
+		assertThat(buffer.binarySearchLeft(2L)).isEqualTo(1);
+	}
+}
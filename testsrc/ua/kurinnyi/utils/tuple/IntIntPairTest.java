@@ -0,0 +1,38 @@
+package ua.kurinnyi.utils.tuple;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntIntPairTest {
+
+	@Test
+	public void shouldSwapAndMapValues() {
+		IntIntPair pair = IntIntPair.of(1, 2).swap().mapLeft((left, right) -> left * 10);
+		String result = pair.transform((left, right) -> left + ":" + right);
+
+		assertThat(pair.getLeft()).isEqualTo(20);
+		assertThat(pair.getRight()).isEqualTo(1);
+		assertThat(result).isEqualTo("20:1");
+		assertThat(pair.test((left, right) -> left > right)).isTrue();
+	}
+
+	@Test
+	public void shouldBeEqualToPairWithSameValues() {
+		assertThat(IntIntPair.of(3, 4)).isEqualTo(IntIntPair.of(3, 4)).isNotEqualTo(IntIntPair.of(4, 3));
+		assertThat(IntIntPair.of(3, 4).hashCode()).isEqualTo(IntIntPair.of(3, 4).hashCode());
+	}
+
+	@Test
+	public void shouldSpreadSmallPairsOverLowHashBits() {
+		Set<Integer> buckets = new HashSet<>();
+		for (int left = 0; left < 32; left++)
+			for (int right = 0; right < 32; right++)
+				buckets.add(IntIntPair.of(left, right).hashCode() & 1023);
+
+		assertThat(buckets.size()).isGreaterThan(600);
+	}
+}
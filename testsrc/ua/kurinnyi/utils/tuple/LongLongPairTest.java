@@ -0,0 +1,29 @@
+package ua.kurinnyi.utils.tuple;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongLongPairTest {
+
+	private long sum;
+
+	@Test
+	public void shouldProvideValuesToConsumer() {
+		LongLongPair.of(1L << 40, 2).use((left, right) -> sum = left + right);
+
+		assertThat(sum).isEqualTo((1L << 40) + 2);
+	}
+
+	@Test
+	public void shouldMapRightAndBox() {
+		Pair<Long, Long> pair = LongLongPair.of(5, 6).mapRight((left, right) -> left * right).boxed();
+
+		assertThat(pair).isEqualTo(Pair.of(5L, 30L));
+	}
+
+	@Test
+	public void shouldBeEqualToPairWithSameValues() {
+		assertThat(LongLongPair.of(-1, 7)).isEqualTo(LongLongPair.of(-1, 7)).isNotEqualTo(LongLongPair.of(7, -1));
+	}
+}
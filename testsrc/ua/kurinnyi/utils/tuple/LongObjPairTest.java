@@ -0,0 +1,28 @@
+package ua.kurinnyi.utils.tuple;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjPairTest {
+
+	@Test
+	public void shouldMapBothValues() {
+		LongObjPair<Integer> pair = LongObjPair.of(3, "abc")
+				.mapLeft((left, right) -> left + right.length())
+				.mapRight((left, right) -> right.length());
+
+		assertThat(pair.getLeft()).isEqualTo(6);
+		assertThat(pair.getRight()).isEqualTo(3);
+		assertThat(pair.swap()).isEqualTo(Pair.of(3, 6L));
+	}
+
+	@Test
+	public void shouldCompareObjectComponentByEquality() {
+		LongObjPair<String> pair = LongObjPair.of(1, new String("a"));
+
+		assertThat(pair).isEqualTo(LongObjPair.of(1, "a")).isNotEqualTo(LongObjPair.of(1, "b"));
+		assertThat(pair.hashCode()).isEqualTo(LongObjPair.of(1, "a").hashCode());
+		assertThat(LongObjPair.of(1, null)).isEqualTo(LongObjPair.of(1, null));
+	}
+}
@@ -0,0 +1,24 @@
+package ua.kurinnyi.utils.tuple;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ObjDoublePairTest {
+
+	@Test
+	public void shouldTransformAndTestValues() {
+		ObjDoublePair<String> pair = ObjDoublePair.of("x", 1.5).mapRight((left, right) -> right * 2);
+		String result = pair.transform((left, right) -> left + right);
+
+		assertThat(result).isEqualTo("x3.0");
+		assertThat(pair.test((left, right) -> right > 2)).isTrue();
+		assertThat(pair.mapLeft((left, right) -> left.length()).getLeft()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldTreatNaNAsEqualToItself() {
+		assertThat(ObjDoublePair.of("a", Double.NaN)).isEqualTo(ObjDoublePair.of("a", Double.NaN));
+		assertThat(ObjDoublePair.of("a", 0.0)).isNotEqualTo(ObjDoublePair.of("a", -0.0));
+	}
+}